@@ -0,0 +1,310 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * An arithmetic progression of {@code int} values from a start (included) to an end (excluded) with a non zero step.
+ * With a negative step the values are decreasing and the range is empty unless the start is above the end. Created
+ * by {@link Integers#range(int, int, int)} and its overloads.
+ * <p>
+ * The range can be iterated any number of times. Besides the {@code Iterable<Integer>} form it can be iterated
+ * without boxing with {@link #intIterator()} or {@link #forEachInt(IntConsumer)}, which is a plain counted loop. The
+ * values are counted in advance, so the iteration stops at the last value even if the next step would overflow.
+ * <p>
+ * Large ranges can be processed on a {@link ForkJoinPool} with {@link #forEachInt(IntConsumer, ForkJoinPool)} and
+ * {@link #reduce(int, IntBinaryOperator, ForkJoinPool)}. They split the range into halves of exact size with
+ * {@link #split()} until the parts are small enough to be iterated sequentially.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class IntRange implements Iterable<Integer> {
+
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    private final int start;
+    private final int end;
+    private final int step;
+    private final long count;
+
+    IntRange(int start, int end, int step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("Step must not be zero");
+        }
+        this.start = start;
+        this.end = end;
+        this.step = step;
+        if (step > 0) {
+            this.count = start < end ? ((long) end - start - 1) / step + 1 : 0;
+        } else {
+            this.count = start > end ? ((long) start - end - 1) / -(long) step + 1 : 0;
+        }
+    }
+
+    /**
+     * @return the number of values in the range, or {@code Integer.MAX_VALUE} if it has more values than that
+     */
+    public int size() {
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of values in the range
+     */
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param index index of the value
+     * @return the value with the given index
+     * @throws IndexOutOfBoundsException if the index is not in the range
+     */
+    public int get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        }
+        return start + index * step;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Passes every value of the range to the consumer, in order, without boxing. Named apart from
+     * {@link Iterable#forEach}, so lambdas are not ambiguous between the two.
+     *
+     * @param consumer receives the values
+     */
+    public void forEachInt(IntConsumer consumer) {
+        int value = start;
+        for (long i = 0; i < count; i++) {
+            consumer.accept(value);
+            value += step;
+        }
+    }
+
+    /**
+     * Passes every value of the range to the consumer using the given pool. The values are passed in order within
+     * the parts of the range, but the parts are processed concurrently, so the consumer has to be thread safe.
+     *
+     * @param consumer receives the values
+     * @param pool the pool running the parts of the range
+     */
+    public void forEachInt(IntConsumer consumer, ForkJoinPool pool) {
+        if (count < SEQUENTIAL_THRESHOLD) {
+            forEachInt(consumer);
+        } else {
+            pool.invoke(new ForEach(this, consumer));
+        }
+    }
+
+    /**
+     * Combines the values of the range from left to right, starting with the identity.
+     *
+     * @param identity the initial value of the result
+     * @param operator combines the result so far with the next value
+     * @return the result of the reduction, or the identity if the range is empty
+     */
+    public int reduce(int identity, IntBinaryOperator operator) {
+        int result = identity;
+        int value = start;
+        for (long i = 0; i < count; i++) {
+            result = operator.applyAsInt(result, value);
+            value += step;
+        }
+        return result;
+    }
+
+    /**
+     * Combines the values of the range using the given pool. The parts of the range are reduced separately, starting
+     * with the identity, then the partial results are combined in order, so the operator has to be associative and
+     * the identity has to be neutral for it.
+     *
+     * @param identity the neutral value of the operator
+     * @param operator combines two partial results
+     * @param pool the pool running the parts of the range
+     * @return the result of the reduction, or the identity if the range is empty
+     */
+    public int reduce(int identity, IntBinaryOperator operator, ForkJoinPool pool) {
+        if (count < SEQUENTIAL_THRESHOLD) {
+            return reduce(identity, operator);
+        }
+        return pool.invoke(new Reduce(this, identity, operator));
+    }
+
+    /**
+     * Splits the range into two halves of the same step. The first half has {@code count() / 2} values, the second
+     * half has the rest.
+     *
+     * @return the two halves of the range
+     */
+    public IntRange[] split() {
+        long half = count / 2;
+        return new IntRange[]{subRange(0, half), subRange(half, count)};
+    }
+
+    /**
+     * @param fromIndex index of the first value of the sub range (included)
+     * @param toIndex index of the last value of the sub range (excluded)
+     * @return the values of this range between the given indexes, with the same step
+     * @throws IndexOutOfBoundsException if the indexes are not in the range
+     */
+    public IntRange subRange(long fromIndex, long toIndex) {
+        if (fromIndex < 0 || toIndex > count || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", to: " + toIndex + ", size: " + count);
+        }
+        if (fromIndex == toIndex) {
+            return new IntRange(end, end, step);
+        }
+        int from = (int) (start + fromIndex * step);
+        int to = toIndex == count ? end : (int) (start + toIndex * step);
+        return new IntRange(from, to, step);
+    }
+
+    /**
+     * @return the values of the range in a new array
+     * @throws IllegalStateException if the range has more values than an array can hold
+     */
+    public int[] toArray() {
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Range is too large for an array: " + count);
+        }
+        int[] values = new int[(int) count];
+        int value = start;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = value;
+            value += step;
+        }
+        return values;
+    }
+
+    @Override
+    public IntIterator iterator() {
+        return intIterator();
+    }
+
+    /**
+     * @return a new iterator from the start of the range
+     */
+    public IntIterator intIterator() {
+        return new RangeIterator();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ") step " + step;
+    }
+
+    private static final class ForEach extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntRange range;
+        private final IntConsumer consumer;
+
+        private ForEach(IntRange range, IntConsumer consumer) {
+            this.range = range;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (range.count < SEQUENTIAL_THRESHOLD) {
+                range.forEachInt(consumer);
+            } else {
+                IntRange[] halves = range.split();
+                invokeAll(new ForEach(halves[0], consumer), new ForEach(halves[1], consumer));
+            }
+        }
+    }
+
+    private static final class Reduce extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntRange range;
+        private final int identity;
+        private final IntBinaryOperator operator;
+
+        private Reduce(IntRange range, int identity, IntBinaryOperator operator) {
+            this.range = range;
+            this.identity = identity;
+            this.operator = operator;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (range.count < SEQUENTIAL_THRESHOLD) {
+                return range.reduce(identity, operator);
+            }
+            IntRange[] halves = range.split();
+            Reduce right = new Reduce(halves[1], identity, operator);
+            right.fork();
+            int left = new Reduce(halves[0], identity, operator).compute();
+            return operator.applyAsInt(left, right.join());
+        }
+    }
+
+    private final class RangeIterator implements IntIterator {
+
+        private int next = start;
+        private long remaining = count;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            next += step;
+            remaining--;
+            return current;
+        }
+
+        @Override
+        public Integer next() {
+            return nextInt();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
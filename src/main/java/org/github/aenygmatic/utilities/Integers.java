@@ -15,7 +15,13 @@
  */
 package org.github.aenygmatic.utilities;
 
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Contains utility functions for {@code Integet} based operations.
@@ -26,8 +32,9 @@ public class Integers {
 
     /**
      * Provides an {@code Iterable} object to go through a line of {@code Integers}. It's a comfortable form to use in
-     * for loops to make it more readable. The following code will iterate from {@code zero} (included) to {@code 100}
-     * (excluded).
+     * for loops to make it more readable. The returned {@link IntRange} can be iterated without boxing as well, with
+     * {@link IntRange#intIterator()} or {@link IntRange#forEachInt(IntConsumer)}. The following code will iterate from
+     * {@code zero} (included) to {@code 100} (excluded).
      * <p>
      * [0, 1, 2... 98, 99]
      * <pre>
@@ -37,10 +44,10 @@ public class Integers {
      * </pre>
      *
      * @param end the end of the iteration. This number will never be reached.
-     * @return {@code Iterable} object of integers
+     * @return the range of integers
      */
-    public static Iterable<Integer> range(int end) {
-        return new IntegerRage(0, end);
+    public static IntRange range(int end) {
+        return new IntRange(0, end, 1);
     }
 
     /**
@@ -57,10 +64,10 @@ public class Integers {
      *
      * @param start the start of the iteration. This number will never be the first element in the iteration.
      * @param end the end of the iteration. This number will never be reached.
-     * @return {@code Iterable} object of integers
+     * @return the range of integers
      */
-    public static Iterable<Integer> range(int start, int end) {
-        return new IntegerRage(start, end);
+    public static IntRange range(int start, int end) {
+        return new IntRange(start, end, 1);
     }
 
     /**
@@ -77,56 +84,115 @@ public class Integers {
      *
      * @param start the start of the iteration. This number will never be the first element in the iteration.
      * @param end the end of the iteration. This number will never be reached.
-     * @param step the value the iteration will use to increment the index
-     * @return {@code Iterable} object of integers
+     * @param step the value the iteration will use to increment the index, it must not be zero. With a negative step
+     * the iteration counts down from the start to the end.
+     * @return the range of integers
      */
-    public static Iterable<Integer> range(int start, int end, int step) {
-        return new SteppingIntegerRage(start, end, step);
+    public static IntRange range(int start, int end, int step) {
+        return new IntRange(start, end, step);
     }
 
-    private Integers() {
+    /**
+     * Provides a range of {@code long} values from the start (included) to the end (excluded), which can be cut into
+     * chunks for batch processing. The following code will process {@code [1, 1000001)} in chunks of {@code 500}
+     * values, on at most {@code 4} threads of the executor.
+     * <pre>
+     *     processChunks(longRange(1, 1000001).chunks(500), 4, executor, new RangeProcessor() {
+     *         public void process(LongRange chunk) {
+     *             // Write the batch from chunk.getStart() to chunk.getEnd()
+     *         }
+     *     });
+     * </pre>
+     *
+     * @param start the start of the iteration, it is the first value unless the range is empty
+     * @param end the end of the iteration. This number will never be reached.
+     * @return the range of longs
+     */
+    public static LongRange longRange(long start, long end) {
+        return new LongRange(start, end, 1);
     }
 
-    private static class IntegerRage implements Iterable<Integer>, Iterator<Integer> {
-
-        protected int start;
-        private int end;
+    /**
+     * Provides a range of {@code long} values from the start (included) to the end (excluded) with the given step.
+     *
+     * @param start the start of the iteration, it is the first value unless the range is empty
+     * @param end the end of the iteration. This number will never be reached.
+     * @param step the difference of the consecutive values, it must not be zero. With a negative step the iteration
+     * counts down from the start to the end.
+     * @return the range of longs
+     * @throws IllegalArgumentException if the step is zero or the range would have more than {@code Long.MAX_VALUE}
+     * values
+     */
+    public static LongRange longRange(long start, long end, long step) {
+        return new LongRange(start, end, step);
+    }
 
-        private IntegerRage(int start, int end) {
-            this.start = start;
-            this.end = end;
+    /**
+     * Processes the chunks on the executor and waits until all of them are done. At most {@code parallelism} tasks
+     * are submitted to the executor, each of them takes the next unprocessed chunk until none is left, so the chunks
+     * are started in order and the list is never copied. After a chunk fails no further chunks are started.
+     *
+     * @param chunks the chunks to process, for example the result of {@link LongRange#chunks(long)}
+     * @param parallelism the maximum number of chunks processed at the same time
+     * @param executor runs the processing tasks
+     * @param processor processes one chunk at a time
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     * @throws ExecutionException if the processing of a chunk failed or the executor rejected a task, it has the
+     * first failure as its cause
+     */
+    public static void processChunks(List<LongRange> chunks, int parallelism, Executor executor,
+            RangeProcessor processor) throws InterruptedException, ExecutionException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
         }
-
-        @Override
-        public boolean hasNext() {
-            return start < end;
+        int workers = Math.min(parallelism, chunks.size());
+        ChunkWorker worker = new ChunkWorker(chunks, processor, workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                worker.failure.compareAndSet(null, e);
+                for (; i < workers; i++) {
+                    worker.done.countDown();
+                }
+            }
         }
-
-        @Override
-        public Integer next() {
-            return start++;
+        worker.done.await();
+        Throwable failure = worker.failure.get();
+        if (failure != null) {
+            throw new ExecutionException(failure);
         }
+    }
 
-        @Override
-        public Iterator<Integer> iterator() {
-            return this;
-        }
+    private Integers() {
     }
 
-    private static class SteppingIntegerRage extends IntegerRage {
+    private static final class ChunkWorker implements Runnable {
 
-        private int step;
+        private final List<LongRange> chunks;
+        private final RangeProcessor processor;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CountDownLatch done;
 
-        private SteppingIntegerRage(int start, int end, int step) {
-            super(start, end);
-            this.step = step;
+        private ChunkWorker(List<LongRange> chunks, RangeProcessor processor, int workers) {
+            this.chunks = chunks;
+            this.processor = processor;
+            this.done = new CountDownLatch(workers);
         }
 
         @Override
-        public Integer next() {
-            int current = start;
-            start = start + step;
-            return current;
+        public void run() {
+            try {
+                int index;
+                while (failure.get() == null && (index = next.getAndIncrement()) < chunks.size()) {
+                    processor.process(chunks.get(index));
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            } finally {
+                done.countDown();
+            }
         }
     }
 }
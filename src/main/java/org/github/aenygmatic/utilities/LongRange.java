@@ -0,0 +1,247 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An arithmetic progression of {@code long} values from a start (included) to an end (excluded) with a non zero step.
+ * With a negative step the values are decreasing and the range is empty unless the start is above the end. Created by
+ * {@link Integers#longRange(long, long, long)}.
+ * <p>
+ * The values are counted in advance, so the iteration stops at the last value even if the next step would overflow.
+ * A range can not have more than {@code Long.MAX_VALUE} values.
+ * <p>
+ * The range can be cut into chunks of a fixed size with {@link #chunks(long)} or into a given number of balanced
+ * chunks with {@link #balancedChunks(int)}. The chunks are computed when they are accessed, so cutting a range does
+ * not cost more than creating the list.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class LongRange implements Iterable<Long> {
+
+    private final long start;
+    private final long end;
+    private final long step;
+    private final long count;
+
+    LongRange(long start, long end, long step) {
+        this(start, end, step, count(start, end, step));
+    }
+
+    private LongRange(long start, long end, long step, long count) {
+        this.start = start;
+        this.end = end;
+        this.step = step;
+        this.count = count;
+    }
+
+    private static long count(long start, long end, long step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("Step must not be zero");
+        }
+        if (step > 0 ? start >= end : start <= end) {
+            return 0;
+        }
+        BigInteger distance = BigInteger.valueOf(end).subtract(BigInteger.valueOf(start)).abs();
+        BigInteger count = distance.subtract(BigInteger.ONE).divide(BigInteger.valueOf(step).abs()).add(BigInteger.ONE);
+        if (count.bitLength() >= Long.SIZE) {
+            throw new IllegalArgumentException("Range has more than " + Long.MAX_VALUE + " values");
+        }
+        return count.longValue();
+    }
+
+    /**
+     * @return the number of values in the range
+     */
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * @param index index of the value
+     * @return the value with the given index
+     * @throws IndexOutOfBoundsException if the index is not in the range
+     */
+    public long get(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + count);
+        }
+        return start + index * step;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * Passes every value of the range to the consumer, in order, without boxing. Named apart from
+     * {@link Iterable#forEach}, so lambdas are not ambiguous between the two.
+     *
+     * @param consumer receives the values
+     */
+    public void forEachLong(LongConsumer consumer) {
+        long value = start;
+        for (long i = 0; i < count; i++) {
+            consumer.accept(value);
+            value += step;
+        }
+    }
+
+    /**
+     * @param fromIndex index of the first value of the sub range (included)
+     * @param toIndex index of the last value of the sub range (excluded)
+     * @return the values of this range between the given indexes, with the same step
+     * @throws IndexOutOfBoundsException if the indexes are not in the range
+     */
+    public LongRange subRange(long fromIndex, long toIndex) {
+        if (fromIndex < 0 || toIndex > count || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", to: " + toIndex + ", size: " + count);
+        }
+        if (fromIndex == toIndex) {
+            return new LongRange(end, end, step, 0);
+        }
+        long from = start + fromIndex * step;
+        long to = toIndex == count ? end : start + toIndex * step;
+        return new LongRange(from, to, step, toIndex - fromIndex);
+    }
+
+    /**
+     * Cuts the range into chunks of the given size. Every chunk has {@code chunkSize} values, except the last one,
+     * which has the rest.
+     *
+     * @param chunkSize the number of values in a chunk
+     * @return the chunks of the range in order, empty if the range is empty
+     * @throws IllegalArgumentException if the chunk size is not positive or there would be more than
+     * {@code Integer.MAX_VALUE} chunks
+     */
+    public List<LongRange> chunks(final long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        long chunkCount = count / chunkSize + (count % chunkSize == 0 ? 0 : 1);
+        if (chunkCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks: " + chunkCount);
+        }
+        return new Chunks((int) chunkCount) {
+            @Override
+            long startIndex(int chunk) {
+                return chunk * chunkSize;
+            }
+        };
+    }
+
+    /**
+     * Cuts the range into the given number of chunks. The sizes of the chunks differ by one at most, the larger ones
+     * are first. If the range has less values than the number of chunks, every chunk has a single value.
+     *
+     * @param chunkCount the number of chunks
+     * @return the chunks of the range in order, empty if the range is empty
+     * @throws IllegalArgumentException if the number of chunks is not positive
+     */
+    public List<LongRange> balancedChunks(int chunkCount) {
+        if (chunkCount <= 0) {
+            throw new IllegalArgumentException("Chunk count must be positive: " + chunkCount);
+        }
+        final int chunks = (int) Math.min(chunkCount, count);
+        final long chunkSize = chunks == 0 ? 0 : count / chunks;
+        final long remainder = chunks == 0 ? 0 : count % chunks;
+        return new Chunks(chunks) {
+            @Override
+            long startIndex(int chunk) {
+                return chunk * chunkSize + Math.min(chunk, remainder);
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new RangeIterator();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + start + ", " + end + ") step " + step;
+    }
+
+    private abstract class Chunks extends AbstractList<LongRange> implements RandomAccess {
+
+        private final int size;
+
+        private Chunks(int size) {
+            this.size = size;
+        }
+
+        abstract long startIndex(int chunk);
+
+        @Override
+        public LongRange get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return subRange(startIndex(index), index == size - 1 ? count : startIndex(index + 1));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private final class RangeIterator implements Iterator<Long> {
+
+        private long next = start;
+        private long remaining = count;
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Long next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            long current = next;
+            next += step;
+            remaining--;
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
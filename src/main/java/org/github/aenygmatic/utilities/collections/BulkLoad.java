@@ -0,0 +1,273 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads many elements into a {@link KeyStorage} with the same result as putting them one by one with
+ * {@link KeyStorage#putPath(String, Object)}.
+ * <p>
+ * Putting the keys one by one looks up every key fragment of every key. The bulk load sorts the keys instead, so the
+ * keys below a key fragment follow each other and every key fragment is created and looked up only once. The result
+ * of the sequential puts is reproduced in two steps: first the new key fragments get the element of the first key
+ * below them, then the keys themselves are put in the original order, so the last element of a key wins.
+ * <p>
+ * The sorting and the collection of the key fragments can be split across a {@link ForkJoinPool}, the storage itself
+ * is written by the calling thread only.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+final class BulkLoad<V> {
+
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    private final String keyDelimiter;
+    private final String[] keys;
+    private final Object[] values;
+    private final int[] order;
+
+    BulkLoad(Map<? extends String, ? extends V> entries, String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+        int size = entries.size();
+        keys = new String[size];
+        values = new Object[size];
+        order = new int[size];
+        int index = 0;
+        for (Map.Entry<? extends String, ? extends V> entry : entries.entrySet()) {
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
+            order[index] = index;
+            index++;
+        }
+    }
+
+    /**
+     * Loads the elements into the storage.
+     *
+     * @param storage the storage to load
+     * @param pool the pool to sort the keys and collect the key fragments with or {@code null} to do it in the calling
+     * thread
+     */
+    void into(KeyStorage<V> storage, ForkJoinPool pool) {
+        List<Fragments> fragments;
+        if (pool == null || keys.length < SEQUENTIAL_THRESHOLD) {
+            new Sort(0, keys.length, new int[keys.length]).compute();
+            Fragments all = new Fragments(0, keys.length);
+            all.compute();
+            fragments = Collections.singletonList(all);
+        } else {
+            pool.invoke(new Sort(0, keys.length, new int[keys.length]));
+            fragments = split(pool.getParallelism() * 4);
+            pool.invoke(new CollectAll(fragments));
+        }
+        putFragments(storage, fragments);
+        putKeys(storage);
+    }
+
+    private List<Fragments> split(int parts) {
+        List<Fragments> fragments = new ArrayList<>();
+        int chunk = Math.max(1, keys.length / parts);
+        int from = 0;
+        while (from < keys.length) {
+            int to = Math.min(keys.length, from + chunk);
+            while (to < keys.length && sameFirstFragment(keys[order[to - 1]], keys[order[to]])) {
+                to++;
+            }
+            fragments.add(new Fragments(from, to));
+            from = to;
+        }
+        return fragments;
+    }
+
+    private boolean sameFirstFragment(String key, String other) {
+        int end = key.indexOf(keyDelimiter);
+        return end >= 0 && other.startsWith(key.substring(0, end + keyDelimiter.length()));
+    }
+
+    private void putFragments(KeyStorage<V> storage, List<Fragments> fragments) {
+        for (Fragments group : fragments) {
+            for (int i = 0; i < group.size; i++) {
+                if (!storage.containsKey(group.fragments[i])) {
+                    storage.put(group.fragments[i], valueAt(group.firsts[i]));
+                }
+            }
+        }
+    }
+
+    private void putKeys(KeyStorage<V> storage) {
+        for (int i = 0; i < keys.length; i++) {
+            storage.put(keys[i], valueAt(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * Merge sort of the key indexes by key.
+     */
+    private final class Sort extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int[] buffer;
+
+        private Sort(int from, int to, int[] buffer) {
+            this.from = from;
+            this.to = to;
+            this.buffer = buffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            Sort left = new Sort(from, middle, buffer);
+            Sort right = new Sort(middle, to, buffer);
+            if (to - from < SEQUENTIAL_THRESHOLD || getPool() == null) {
+                left.compute();
+                right.compute();
+            } else {
+                invokeAll(left, right);
+            }
+            merge(middle);
+        }
+
+        private void merge(int middle) {
+            if (compare(order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, buffer, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right >= to || left < middle && compare(buffer[left], buffer[right]) <= 0) {
+                    order[i] = buffer[left++];
+                } else {
+                    order[i] = buffer[right++];
+                }
+            }
+        }
+
+        private int compare(int index, int other) {
+            return keys[index].compareTo(keys[other]);
+        }
+    }
+
+    /**
+     * Collects the key fragments of a range of the sorted keys, with the index of the first key below each of them. No
+     * key fragment has keys in two ranges, because the ranges are split between different first key fragments.
+     */
+    private final class Fragments extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private String[] fragments = new String[16];
+        private int[] firsts = new int[16];
+        private int size;
+
+        private final List<String> open = new ArrayList<>();
+        private int[] openFirsts = new int[16];
+
+        private Fragments(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to; i++) {
+                int index = order[i];
+                String key = keys[index];
+                while (!open.isEmpty() && !isBelow(key, open.get(open.size() - 1))) {
+                    close();
+                }
+                int start = open.isEmpty() ? 0 : open.get(open.size() - 1).length() + keyDelimiter.length();
+                for (int end = key.indexOf(keyDelimiter, start); end >= 0; end = key.indexOf(keyDelimiter,
+                        end + keyDelimiter.length())) {
+                    open(key.substring(0, end), index);
+                }
+                if (!open.isEmpty()) {
+                    int deepest = open.size() - 1;
+                    openFirsts[deepest] = Math.min(openFirsts[deepest], index);
+                }
+            }
+            while (!open.isEmpty()) {
+                close();
+            }
+        }
+
+        private boolean isBelow(String key, String fragment) {
+            return key.startsWith(fragment) && key.startsWith(keyDelimiter, fragment.length());
+        }
+
+        private void open(String fragment, int first) {
+            if (open.size() == openFirsts.length) {
+                openFirsts = Arrays.copyOf(openFirsts, openFirsts.length * 2);
+            }
+            openFirsts[open.size()] = first;
+            open.add(fragment);
+        }
+
+        private void close() {
+            int deepest = open.size() - 1;
+            String fragment = open.remove(deepest);
+            int first = openFirsts[deepest];
+            if (deepest > 0) {
+                openFirsts[deepest - 1] = Math.min(openFirsts[deepest - 1], first);
+            }
+            if (size == fragments.length) {
+                fragments = Arrays.copyOf(fragments, size * 2);
+                firsts = Arrays.copyOf(firsts, size * 2);
+            }
+            fragments[size] = fragment;
+            firsts[size] = first;
+            size++;
+        }
+    }
+
+    private static final class CollectAll extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends RecursiveAction> tasks;
+
+        private CollectAll(List<? extends RecursiveAction> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(tasks);
+        }
+    }
+}
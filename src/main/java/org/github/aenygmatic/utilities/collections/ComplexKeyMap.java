@@ -27,4 +27,23 @@ import java.util.Map;
  */
 public interface ComplexKeyMap<K, V> extends Map<K, V> {
 
+    /**
+     * Gets the element of the complex key made of the given segments, with the same fallback as {@link #get(Object)}.
+     * The segments are the objects the key is built from (e.g. ids and enums), so the caller does not need to build
+     * the key.
+     *
+     * @param segments the segments of the key from the root
+     * @return the element or {@code null} if neither the key nor its parents has element
+     */
+    V getBySegments(Object... segments);
+
+    /**
+     * Associates the element to the complex key made of the given segments, with the same semantics as
+     * {@link #put(Object, Object)}.
+     *
+     * @param segments the segments of the key from the root
+     * @param value element to store
+     * @return the previous element of the key
+     */
+    V putBySegments(Object[] segments, V value);
 }
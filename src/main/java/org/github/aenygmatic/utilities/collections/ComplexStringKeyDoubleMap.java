@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.Arrays;
+
+/**
+ * Variant of {@link ComplexStringKeyMap} storing {@code double} elements without boxing. The keys and their key
+ * fragments are stored once in a {@link KeyIndex} and the elements in a {@code double} array.
+ * <p>
+ * Getting an element for a key uses the same fallback strategy as {@link ComplexStringKeyMap}, and putting an element
+ * associates it to all key fragments of the key which are not associated yet. As {@code double} has no
+ * {@code null}, the lookups return the absent value of the map when neither the key nor its key fragments are stored.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ComplexStringKeyDoubleMap {
+
+    private final KeyIndex keys;
+    private final double absentValue;
+    private double[] values;
+
+    /**
+     * Creates a map with the default key delimiter and {@link Double#NaN} as absent value.
+     */
+    public ComplexStringKeyDoubleMap() {
+        this(ComplexStringKeyMap.DEFAULT_DELIMITER, Double.NaN);
+    }
+
+    /**
+     * @param keyDelimiter the key delimiter
+     * @param absentValue the value returned for the keys which are not stored
+     */
+    public ComplexStringKeyDoubleMap(String keyDelimiter, double absentValue) {
+        this.keys = new KeyIndex(keyDelimiter);
+        this.absentValue = absentValue;
+        this.values = new double[keys.capacity()];
+    }
+
+    /**
+     * @param key complex key
+     * @return the element of the key or of its deepest stored key fragment, or the absent value
+     */
+    public double get(String key) {
+        int number = keys.resolve(key);
+        return number < 0 ? absentValue : values[number];
+    }
+
+    /**
+     * Associates the element to the key and to all key fragments of the key which are not associated yet.
+     *
+     * @param key complex key
+     * @param value element to store
+     * @return the previous element of the key or the absent value
+     */
+    public double put(String key, double value) {
+        int added = keys.size();
+        int number = keys.addPath(key);
+        if (values.length < keys.capacity()) {
+            values = Arrays.copyOf(values, keys.capacity());
+        }
+        Arrays.fill(values, added, keys.size(), value);
+        double previous = number < added ? values[number] : absentValue;
+        values[number] = value;
+        return previous;
+    }
+
+    /**
+     * @param key complex key
+     * @return {@code true} if the key is stored, without fallback
+     */
+    public boolean containsKey(String key) {
+        return keys.indexOf(key) >= 0;
+    }
+
+    /**
+     * Removes the key, but not its key fragments.
+     *
+     * @param key complex key
+     * @return the element of the key or the absent value
+     */
+    public double remove(String key) {
+        int number = keys.indexOf(key);
+        if (number < 0) {
+            return absentValue;
+        }
+        double previous = values[number];
+        values[number] = values[keys.remove(number)];
+        return previous;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public boolean isEmpty() {
+        return keys.size() == 0;
+    }
+
+    public void clear() {
+        keys.clear();
+    }
+
+    /**
+     * @return the stored keys
+     */
+    public String[] keys() {
+        return keys.keys();
+    }
+
+    public double getAbsentValue() {
+        return absentValue;
+    }
+}
@@ -15,12 +15,14 @@
  */
 package org.github.aenygmatic.utilities.collections;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
-
-import org.github.aenygmatic.utilities.Integers;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Stores elements behind complex {@code String} keys which has hierarchical relations. A complex key is made of key
@@ -29,6 +31,17 @@ import org.github.aenygmatic.utilities.Integers;
  * Getting an element for a key will uses fallback strategy which means for the key {@code A:B:C} the element of key
  * {@code A:B} will return if no direct association is made to {@code A:B:C}.
  * <p>
+ * The elements are stored by default in a hash table which contains every key fragment as a separate key. With
+ * {@link Storage#TRIE} the keys are stored in a trie of key fragments instead, which stores the common key fragments
+ * only once and resolves a key in one pass.
+ * <p>
+ * The resolved elements can be cached with {@link #setResolutionCacheSize(int)}, which helps when the same keys are
+ * requested repeatedly and fall back several levels. While the cache is enabled the views of the map are read-only,
+ * so every modification goes through the map and evicts the affected keys from the cache. The cache is synchronized,
+ * so a map which is no longer modified can still be read by several threads with the cache enabled.
+ * <p>
+ * How the lookups resolve can be measured with {@link #setMetricsEnabled(boolean)}.
+ * <p>
  * @author Balazs Berkes
  * @param <V> type of the stored element
  */
@@ -36,15 +49,25 @@ public class ComplexStringKeyMap<V> implements ComplexKeyMap<String, V> {
 
     public static final String DEFAULT_DELIMITER = ":";
 
-    private final Map<String, V> map = new HashMap<>();
+    private final Storage storage;
+    private KeyStorage<V> map;
     private String keyDelimiter;
+    private ResolutionCache<V> cache;
+    private int cacheSize;
+    private LookupMetrics metrics;
 
     public ComplexStringKeyMap() {
         this(DEFAULT_DELIMITER);
     }
 
     public ComplexStringKeyMap(String keyDelimiter) {
+        this(keyDelimiter, Storage.HASH);
+    }
+
+    public ComplexStringKeyMap(String keyDelimiter, Storage storage) {
         this.keyDelimiter = keyDelimiter;
+        this.storage = storage;
+        this.map = storage.create(keyDelimiter);
     }
 
     public ComplexStringKeyMap(Map<? extends String, ? extends V> map) {
@@ -73,11 +96,44 @@ public class ComplexStringKeyMap<V> implements ComplexKeyMap<String, V> {
         return putElement(key, value);
     }
 
+    /**
+     * Resolves the key made of the segments like {@link #get(Object)}. Without the resolution cache and the metrics
+     * the segments are resolved without joining them into a key, otherwise the joined key is looked up and recorded
+     * like any other key.
+     *
+     * @param segments the segments of the key
+     * @return the element of the key or of its closest parent
+     */
+    @Override
+    public V getBySegments(Object... segments) {
+        Segments key = new Segments(segments, keyDelimiter);
+        if (cache == null && metrics == null) {
+            return map.resolve(key);
+        }
+        return getElement(key.join(segments.length));
+    }
+
+    @Override
+    public V putBySegments(Object[] segments, V value) {
+        return putElement(new Segments(segments, keyDelimiter).join(segments.length), value);
+    }
+
     @Override
     public void putAll(Map<? extends String, ? extends V> map) {
         putAllElement(map);
     }
 
+    /**
+     * Copies all of the mappings like {@link #putAll(Map)}, sorting the keys and collecting their key fragments in the
+     * given pool. Useful to load large maps.
+     *
+     * @param map mappings to be stored in this map
+     * @param pool the pool to use
+     */
+    public void putAll(Map<? extends String, ? extends V> map, ForkJoinPool pool) {
+        putAllElement(map, pool);
+    }
+
     @Override
     public int size() {
         return map.size();
@@ -100,86 +156,282 @@ public class ComplexStringKeyMap<V> implements ComplexKeyMap<String, V> {
 
     @Override
     public V remove(Object key) {
+        if (cache != null && key instanceof String) {
+            cache.invalidate((String) key);
+        }
         return map.remove(key);
     }
 
     @Override
     public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
         map.clear();
     }
 
     @Override
     public Set<String> keySet() {
-        return map.keySet();
+        return cache == null ? map.keySet() : Collections.unmodifiableSet(map.keySet());
     }
 
     @Override
     public Collection<V> values() {
-        return map.values();
+        return cache == null ? map.values() : Collections.unmodifiableCollection(map.values());
     }
 
     @Override
     public Set<Entry<String, V>> entrySet() {
-        return map.entrySet();
+        return cache == null ? map.entrySet() : Collections.unmodifiableMap(map).entrySet();
+    }
+
+    /**
+     * Returns a view of the key and the keys below it, e.g. {@code A} and {@code A:B} but not {@code AB} for the key
+     * {@code A}. The view is backed by this map and has the exact keys of the map, without fallback. Putting a key
+     * which is not below the prefix throws {@link IllegalArgumentException}.
+     * <p>
+     * With {@link Storage#TRIE} the operations of the view cost proportional to the size of the subtree, with
+     * {@link Storage#HASH} iterating and counting scans the whole map.
+     *
+     * @param prefix complex key of the subtree
+     * @return view of the subtree
+     */
+    public Map<String, V> subMap(String prefix) {
+        Map<String, V> subMap = new SubMap(prefix);
+        return cache == null ? subMap : Collections.unmodifiableMap(subMap);
+    }
+
+    /**
+     * Passes the entries of the key and the keys below it to the consumer.
+     *
+     * @param prefix complex key of the subtree
+     * @param consumer receives the entries
+     * @see #subMap(String)
+     */
+    public void forEachUnder(String prefix, EntryConsumer<? super String, ? super V> consumer) {
+        map.forEachUnder(prefix, consumer);
+    }
+
+    /**
+     * @param prefix complex key of the subtree
+     * @return the number of entries of the key and the keys below it
+     * @see #subMap(String)
+     */
+    public int countUnder(String prefix) {
+        return map.countUnder(prefix);
+    }
+
+    /**
+     * Iterates over the entries of the key and the keys below it, finding the entries while iterating.
+     *
+     * @param prefix complex key of the subtree
+     * @return iterator of the entries
+     * @see #subMap(String)
+     */
+    public Iterator<Entry<String, V>> iteratorUnder(String prefix) {
+        return subMap(prefix).entrySet().iterator();
     }
 
     private V getElement(String key) {
-        V element = null;
-        String keyFragment = key;
-        for (int keyComplexity = complexityOf(key); keyComplexity >= 0 && element == null; keyComplexity--) {
-            element = map.get(keyFragment);
-            keyFragment = removeLastFragment(keyFragment);
+        ResolutionCache<V> current = cache;
+        if (current == null) {
+            return resolve(key);
         }
+        synchronized (current) {
+            if (current.contains(key)) {
+                return current.get(key);
+            }
+        }
+        V element = resolve(key);
+        current.put(key, element);
         return element;
     }
 
-    private int complexityOf(String key) {
-        return key.split(keyDelimiter).length - 1;
+    private V resolve(String key) {
+        LookupMetrics current = metrics;
+        if (current == null) {
+            return map.resolve(key);
+        }
+        long start = System.nanoTime();
+        V element = map.resolve(key, current);
+        current.recordTime(System.nanoTime() - start);
+        return element;
     }
 
-    private String removeLastFragment(String fragment) {
-        return fragment.contains(keyDelimiter) ? fragment.substring(0, fragment.lastIndexOf(keyDelimiter.charAt(0))) : null;
+    private void putAllElement(Map<? extends String, ? extends V> map) {
+        putAllElement(map, null);
     }
 
-    private void putAllElement(Map<? extends String, ? extends V> map) {
-        for (Map.Entry<? extends String, ? extends V> entry : map.entrySet()) {
-            putElement(entry.getKey(), entry.getValue());
+    private void putAllElement(Map<? extends String, ? extends V> elements, ForkJoinPool pool) {
+        if (cache != null) {
+            cache.clear();
         }
+        new BulkLoad<V>(elements, keyDelimiter).into(map, pool);
     }
 
     private V putElement(final String key, final V value) {
-        V previous = null;
-        String[] keyHierarchy = key.split(keyDelimiter);
-
-        StringBuilder fragments = new StringBuilder();
-        for (Integer i : Integers.range(keyHierarchy.length)) {
-            expandToNext(fragments, i, keyHierarchy[i]);
+        if (cache != null) {
+            cache.invalidate(shallowestNewFragment(key));
+        }
+        return map.putPath(key, value);
+    }
 
-            if (isOverridingLevel(keyHierarchy.length, i)) {
-                previous = map.put(fragments.toString(), value);
-            } else if (isOverridableLevel(fragments.toString())) {
-                previous = map.put(fragments.toString(), value);
+    private String shallowestNewFragment(String key) {
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, end + keyDelimiter.length())) {
+            String fragment = key.substring(0, end);
+            if (!map.containsKey(fragment)) {
+                return fragment;
             }
         }
-        return previous;
+        return key;
     }
 
-    private boolean isOverridingLevel(int keyComplexity, int currentLevel) {
-        return keyComplexity - 1 == currentLevel;
+    public void setKeyDelimiter(String keyDelimiter) {
+        KeyStorage<V> rebuilt = storage.create(keyDelimiter);
+        rebuilt.putAll(map);
+        this.keyDelimiter = keyDelimiter;
+        this.map = rebuilt;
+        if (cache != null) {
+            cache = new ResolutionCache<>(cacheSize, keyDelimiter);
+        }
+    }
+
+    /**
+     * Enables or disables counting the lookups of {@link #get(Object)} and {@link #getBySegments(Object...)}: the
+     * exact hits, the hits per fallback level, the misses, the key fragments looked up and the time of resolving. The
+     * lookups answered by the resolution cache are counted by the cache only. When disabled the lookups are not
+     * measured at all.
+     *
+     * @param enabled {@code true} to start counting from zero, {@code false} to stop counting
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        metrics = enabled ? new LookupMetrics() : null;
+    }
+
+    /**
+     * Takes a snapshot of the lookup counters. The statistics are empty when the metrics are not enabled.
+     *
+     * @return snapshot of the statistics
+     */
+    public LookupStatistics getLookupStatistics() {
+        return (metrics == null ? new LookupMetrics() : metrics).snapshot();
+    }
+
+    /**
+     * Creates an immutable copy of the map with the current key delimiter. The copy is more compact and resolves the
+     * keys faster, see {@link ImmutableComplexStringKeyMap}.
+     *
+     * @return immutable copy of the map
+     */
+    public ImmutableComplexStringKeyMap<V> freeze() {
+        return new ImmutableComplexStringKeyMap<>(map, keyDelimiter);
     }
 
-    private boolean isOverridableLevel(String key) {
-        return !map.containsKey(key);
+    /**
+     * Enables caching the resolved elements of the most recently requested keys, including the keys which resolve to
+     * no element. The cache evicts the least recently used keys above the given size.
+     *
+     * @param size the maximum number of cached keys, {@code 0} disables the cache
+     */
+    public void setResolutionCacheSize(int size) {
+        cacheSize = size;
+        cache = size <= 0 ? null : new ResolutionCache<V>(size, keyDelimiter);
     }
 
-    private void expandToNext(StringBuilder fragments, Integer keyComplexity, String fragment) {
-        if (keyComplexity > 0) {
-            fragments.append(keyDelimiter);
+    /**
+     * @return number of lookups answered from the resolution cache
+     */
+    public long getResolutionCacheHits() {
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    /**
+     * @return number of lookups which had to be resolved while the resolution cache was enabled
+     */
+    public long getResolutionCacheMisses() {
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    private class SubMap extends AbstractMap<String, V> {
+
+        private final String prefix;
+
+        private SubMap(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public V get(Object key) {
+            return isUnder(key) ? map.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return isUnder(key) && map.containsKey(key);
+        }
+
+        @Override
+        public V put(String key, V value) {
+            if (!isUnder(key)) {
+                throw new IllegalArgumentException("Key is not below " + prefix + ": " + key);
+            }
+            return putElement(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return isUnder(key) ? ComplexStringKeyMap.this.remove(key) : null;
+        }
+
+        @Override
+        public int size() {
+            return map.countUnder(prefix);
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return map.iteratorUnder(prefix);
+                }
+
+                @Override
+                public int size() {
+                    return map.countUnder(prefix);
+                }
+            };
+        }
+
+        private boolean isUnder(Object key) {
+            return key instanceof String && Keys.isUnder((String) key, prefix, keyDelimiter);
         }
-        fragments.append(fragment);
     }
 
-    public void setKeyDelimiter(String keyDelimiter) {
-        this.keyDelimiter = keyDelimiter;
+    /**
+     * Storage engines of the map.
+     */
+    public enum Storage {
+
+        /**
+         * Stores every key fragment as a separate key of a hash table.
+         */
+        HASH {
+            @Override
+            <V> KeyStorage<V> create(String keyDelimiter) {
+                return new HashKeyStorage<>(keyDelimiter);
+            }
+        },
+        /**
+         * Stores the keys as a trie of key fragments.
+         */
+        TRIE {
+            @Override
+            <V> KeyStorage<V> create(String keyDelimiter) {
+                return new TrieKeyStorage<>(keyDelimiter);
+            }
+        };
+
+        abstract <V> KeyStorage<V> create(String keyDelimiter);
     }
 }
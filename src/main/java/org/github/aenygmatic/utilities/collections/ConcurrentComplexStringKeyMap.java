@@ -0,0 +1,825 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread safe variant of {@link ComplexStringKeyMap}. The keys are stored in an immutable trie of key fragments and
+ * every modification publishes a new version of the trie, copying only the path from the root to the modified key
+ * fragment.
+ * <p>
+ * Reading the map is lock free: a lookup walks the version which was published at the time it started, so it never
+ * waits for writers and always sees a {@code put} with all of its key fragments, or none of them. The writers are
+ * serialized by a monitor of the map. The iterators work on the version published at their creation, they never throw
+ * {@link java.util.ConcurrentModificationException} and do not see later modifications.
+ * <p>
+ * The contents of the map can be replaced without stopping the readers with a {@link Reload}, which builds a new
+ * generation of the map off to the side and publishes it at once. {@link #putAll(Map)} and the constructors taking a
+ * map build the trie in one pass as well, so every level is sorted once instead of being copied for each key.
+ * <p>
+ * Like the other concurrent maps this map does not allow {@code null} keys and values.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+public class ConcurrentComplexStringKeyMap<V> extends AbstractMap<String, V>
+        implements ComplexKeyMap<String, V>, ConcurrentMap<String, V> {
+
+    private final Object writeLock = new Object();
+    private final String keyDelimiter;
+    private volatile Node<V> root = Node.empty(null);
+    private volatile long generation;
+
+    public ConcurrentComplexStringKeyMap() {
+        this(ComplexStringKeyMap.DEFAULT_DELIMITER);
+    }
+
+    public ConcurrentComplexStringKeyMap(String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+    }
+
+    public ConcurrentComplexStringKeyMap(Map<? extends String, ? extends V> map) {
+        this(map, ComplexStringKeyMap.DEFAULT_DELIMITER);
+    }
+
+    public ConcurrentComplexStringKeyMap(Map<? extends String, ? extends V> map, String keyDelimiter) {
+        this(keyDelimiter);
+        this.root = withAll(root, map);
+    }
+
+    private ConcurrentComplexStringKeyMap(Node<V> root, String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+        this.root = root;
+    }
+
+    /**
+     * Starts a new generation of the map. The changes of the returned {@link Reload} are invisible to the readers of
+     * the map until they are {@link Reload#publish() published} at once.
+     *
+     * @return the new generation
+     */
+    public Reload reload() {
+        return new Reload(root);
+    }
+
+    /**
+     * Returns an independent copy of the map. The copy shares the trie of the current generation, so making it costs
+     * the same regardless of the size of the map.
+     *
+     * @return copy of the map
+     */
+    public ConcurrentComplexStringKeyMap<V> snapshot() {
+        return new ConcurrentComplexStringKeyMap<>(root, keyDelimiter);
+    }
+
+    /**
+     * @return the number of modifications published to the map, including the published {@link Reload}s
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String complexKey = (String) key;
+        Node<V> node = root;
+        V element = null;
+        int from = 0;
+        for (;;) {
+            int end = complexKey.indexOf(keyDelimiter, from);
+            int to = end < 0 ? complexKey.length() : end;
+            node = node.child(complexKey, from, to);
+            if (node == null) {
+                return element;
+            }
+            if (node.value != null) {
+                element = node.value;
+            }
+            if (end < 0) {
+                return element;
+            }
+            from = end + keyDelimiter.length();
+        }
+    }
+
+    @Override
+    public V getBySegments(Object... segments) {
+        Node<V> node = root;
+        V element = null;
+        for (Object segment : segments) {
+            String fragment = String.valueOf(segment);
+            node = node.child(fragment, 0, fragment.length());
+            if (node == null) {
+                return element;
+            }
+            if (node.value != null) {
+                element = node.value;
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public V putBySegments(Object[] segments, V value) {
+        return put(new Segments(segments, keyDelimiter).join(segments.length), value);
+    }
+
+    @Override
+    public V put(String key, V value) {
+        checkNotNull(key, value);
+        synchronized (writeLock) {
+            V previous = valueOf(find(root, key));
+            publishRoot(putPath(root, key, 0, value, true));
+            return previous;
+        }
+    }
+
+    /**
+     * Puts the elements with the same semantics as {@link #put(String, Object)} and publishes them as a single
+     * modification, so the readers see either none or all of them.
+     *
+     * @param map mappings to be stored in this map
+     */
+    @Override
+    public void putAll(Map<? extends String, ? extends V> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            publishRoot(withAll(root, map));
+        }
+    }
+
+    @Override
+    public V putIfAbsent(String key, V value) {
+        checkNotNull(key, value);
+        synchronized (writeLock) {
+            V previous = valueOf(find(root, key));
+            if (previous == null) {
+                publishRoot(putPath(root, key, 0, value, true));
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    public V replace(String key, V value) {
+        checkNotNull(key, value);
+        synchronized (writeLock) {
+            V previous = valueOf(find(root, key));
+            if (previous != null) {
+                publishRoot(putPath(root, key, 0, value, true));
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    public boolean replace(String key, V oldValue, V newValue) {
+        checkNotNull(key, newValue);
+        synchronized (writeLock) {
+            boolean replaced = oldValue != null && oldValue.equals(valueOf(find(root, key)));
+            if (replaced) {
+                publishRoot(putPath(root, key, 0, newValue, true));
+            }
+            return replaced;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        synchronized (writeLock) {
+            V previous = valueOf(find(root, (String) key));
+            if (previous != null) {
+                publishRoot(remove(root, (String) key, 0));
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof String) || value == null) {
+            return false;
+        }
+        synchronized (writeLock) {
+            boolean removed = value.equals(valueOf(find(root, (String) key)));
+            if (removed) {
+                publishRoot(remove(root, (String) key, 0));
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && find(root, (String) key) != null;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            publishRoot(Node.<V>empty(null));
+        }
+    }
+
+    @Override
+    public int size() {
+        return root.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root.size == 0;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private Node<V> find(Node<V> from, String key) {
+        Node<V> node = from;
+        int start = 0;
+        for (;;) {
+            int end = key.indexOf(keyDelimiter, start);
+            int to = end < 0 ? key.length() : end;
+            node = node.child(key, start, to);
+            if (node == null || end < 0) {
+                return node == null || node.value == null ? null : node;
+            }
+            start = end + keyDelimiter.length();
+        }
+    }
+
+    private Node<V> withAll(Node<V> base, Map<? extends String, ? extends V> map) {
+        Draft draft = new Draft(base);
+        for (Map.Entry<? extends String, ? extends V> entry : map.entrySet()) {
+            checkNotNull(entry.getKey(), entry.getValue());
+            draft.put(entry.getKey(), entry.getValue(), true);
+        }
+        return draft.freeze(base);
+    }
+
+    private void publishRoot(Node<V> newRoot) {
+        root = newRoot;
+        generation++;
+    }
+
+    private Node<V> putPath(Node<V> node, String key, int from, V value, boolean fillFragments) {
+        int end = key.indexOf(keyDelimiter, from);
+        int to = end < 0 ? key.length() : end;
+        Node<V> child = node.child(key, from, to);
+        Node<V> updated;
+        if (end < 0) {
+            updated = child == null ? Node.leaf(key.substring(from, to), value) : child.withValue(value);
+        } else {
+            Node<V> base = child == null ? Node.<V>empty(key.substring(from, to)) : child;
+            if (fillFragments && base.value == null) {
+                base = base.withValue(value);
+            }
+            updated = putPath(base, key, end + keyDelimiter.length(), value, fillFragments);
+        }
+        return node.withChild(child, updated);
+    }
+
+    private Node<V> remove(Node<V> node, String key, int from) {
+        int end = key.indexOf(keyDelimiter, from);
+        int to = end < 0 ? key.length() : end;
+        Node<V> child = node.child(key, from, to);
+        Node<V> updated = end < 0 ? child.withValue(null) : remove(child, key, end + keyDelimiter.length());
+        if (updated.value == null && updated.children.length == 0) {
+            return node.withoutChild(child);
+        }
+        return node.withChild(child, updated);
+    }
+
+    private static <V> V valueOf(Node<V> node) {
+        return node == null ? null : node.value;
+    }
+
+    private static void checkNotNull(String key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    /**
+     * A mutable key fragment used to build a new version of the trie in one pass. A draft starts as a view of an
+     * existing node and copies its children only when a key below it is changed, so the untouched subtrees stay
+     * shared with the existing version. {@link #freeze(Node)} sorts every changed level once and turns the draft into
+     * immutable nodes.
+     */
+    private final class Draft {
+
+        private final String fragment;
+        private final Node<V> origin;
+        private V value;
+        private Map<String, Draft> children;
+
+        private Draft(Node<V> origin) {
+            this(origin.fragment, origin);
+        }
+
+        private Draft(String fragment, Node<V> origin) {
+            this.fragment = fragment;
+            this.origin = origin;
+            this.value = origin == null ? null : origin.value;
+        }
+
+        /**
+         * Puts the element with the same semantics as {@code putPath}, filling the missing key fragments if asked.
+         */
+        private void put(String key, V newValue, boolean fillFragments) {
+            Draft node = this;
+            int from = 0;
+            for (;;) {
+                int end = key.indexOf(keyDelimiter, from);
+                node = node.child(key.substring(from, end < 0 ? key.length() : end), true);
+                if (end < 0) {
+                    node.value = newValue;
+                    return;
+                }
+                if (fillFragments && node.value == null) {
+                    node.value = newValue;
+                }
+                from = end + keyDelimiter.length();
+            }
+        }
+
+        private void remove(String key) {
+            Draft node = this;
+            int from = 0;
+            for (;;) {
+                int end = key.indexOf(keyDelimiter, from);
+                node = node.child(key.substring(from, end < 0 ? key.length() : end), false);
+                if (node == null) {
+                    return;
+                }
+                if (end < 0) {
+                    node.value = null;
+                    return;
+                }
+                from = end + keyDelimiter.length();
+            }
+        }
+
+        private Draft child(String childFragment, boolean create) {
+            if (children == null) {
+                children = new HashMap<>();
+                if (origin != null) {
+                    for (Node<V> child : origin.children) {
+                        children.put(child.fragment, new Draft(child));
+                    }
+                }
+            }
+            Draft child = children.get(childFragment);
+            if (child == null && create) {
+                child = new Draft(childFragment, null);
+                children.put(childFragment, child);
+            }
+            return child;
+        }
+
+        /**
+         * Builds the immutable version of the draft. The nodes which turn out to be equal to the corresponding node of
+         * the previous version are replaced by it, so the previous version is shared even when the draft was not
+         * started from it.
+         *
+         * @param previous the node of the previous version at the same key, or {@code null}
+         * @return the immutable node
+         */
+        private Node<V> freeze(Node<V> previous) {
+            Node<V> frozen = build(previous);
+            return frozen == null ? Node.<V>empty(fragment) : frozen;
+        }
+
+        private Node<V> build(Node<V> previous) {
+            Node<V> node;
+            if (children == null) {
+                if (origin != null) {
+                    node = value == origin.value ? origin : origin.withValue(value);
+                } else {
+                    node = value == null ? null : Node.leaf(fragment, value);
+                }
+            } else {
+                node = buildChildren(previous);
+            }
+            if (node == null || node.value == null && node.children.length == 0) {
+                return null;
+            }
+            return node.sameAs(previous) ? previous : node;
+        }
+
+        private Node<V> buildChildren(Node<V> previous) {
+            List<Node<V>> built = new ArrayList<>(children.size());
+            int size = value == null ? 0 : 1;
+            for (Draft child : children.values()) {
+                Node<V> previousChild = previous == null ? null
+                        : previous.child(child.fragment, 0, child.fragment.length());
+                Node<V> node = child.build(previousChild);
+                if (node != null) {
+                    built.add(node);
+                    size += node.size;
+                }
+            }
+            Node<V>[] sorted = Node.sorted(built);
+            return new Node<>(fragment, fragment == null ? 0 : fragment.hashCode(), value, sorted, size);
+        }
+    }
+
+    /**
+     * An immutable key fragment of the trie. The children are sorted by the hash of their key fragment, so a child is
+     * found by binary search on the hash of a region of the key.
+     */
+    private static final class Node<E> {
+
+        @SuppressWarnings("rawtypes")
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Comparator<Node<?>> BY_HASH = new Comparator<Node<?>>() {
+
+            @Override
+            public int compare(Node<?> first, Node<?> second) {
+                return Integer.compare(first.hash, second.hash);
+            }
+        };
+
+        private final String fragment;
+        private final int hash;
+        private final E value;
+        private final Node<E>[] children;
+        private final int size;
+
+        private Node(String fragment, int hash, E value, Node<E>[] children, int size) {
+            this.fragment = fragment;
+            this.hash = hash;
+            this.value = value;
+            this.children = children;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> Node<E> empty(String fragment) {
+            return new Node<>(fragment, fragment == null ? 0 : fragment.hashCode(), null, NO_CHILDREN, 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> Node<E> leaf(String fragment, E value) {
+            return new Node<>(fragment, fragment.hashCode(), value, NO_CHILDREN, 1);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <E> Node<E>[] sorted(List<Node<E>> nodes) {
+            Node<E>[] sorted = nodes.isEmpty() ? NO_CHILDREN : nodes.toArray(new Node[nodes.size()]);
+            Arrays.sort(sorted, BY_HASH);
+            return sorted;
+        }
+
+        /**
+         * @param other node to compare with
+         * @return {@code true} if the other node has the same element and the very same children
+         */
+        private boolean sameAs(Node<E> other) {
+            if (other == this) {
+                return true;
+            }
+            if (other == null || value != other.value || children.length != other.children.length) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != other.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Node<E> child(String key, int from, int to) {
+            int index = indexOf(key, from, to, Keys.hash(key, from, to));
+            return index < 0 ? null : children[index];
+        }
+
+        private Node<E> withValue(E newValue) {
+            int newSize = size - (value == null ? 0 : 1) + (newValue == null ? 0 : 1);
+            return new Node<>(fragment, hash, newValue, children, newSize);
+        }
+
+        private Node<E> withChild(Node<E> previous, Node<E> child) {
+            Node<E>[] newChildren;
+            int newSize = size + child.size;
+            if (previous == null) {
+                int index = -indexOf(child.fragment, 0, child.fragment.length(), child.hash) - 1;
+                newChildren = copyOf(children.length + 1);
+                System.arraycopy(children, 0, newChildren, 0, index);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                newChildren[index] = child;
+            } else {
+                newChildren = children.clone();
+                newChildren[indexOf(previous.fragment, 0, previous.fragment.length(), previous.hash)] = child;
+                newSize -= previous.size;
+            }
+            return new Node<>(fragment, hash, value, newChildren, newSize);
+        }
+
+        private Node<E> withoutChild(Node<E> child) {
+            int index = indexOf(child.fragment, 0, child.fragment.length(), child.hash);
+            Node<E>[] newChildren = copyOf(children.length - 1);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Node<>(fragment, hash, value, newChildren, size - child.size);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Node<E>[] copyOf(int length) {
+            return length == 0 ? NO_CHILDREN : new Node[length];
+        }
+
+        /**
+         * @return the index of the child or {@code -(insertion point) - 1} if there is no such child
+         */
+        private int indexOf(String key, int from, int to, int keyHash) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleHash = children[middle].hash;
+                if (middleHash < keyHash) {
+                    low = middle + 1;
+                } else if (middleHash > keyHash) {
+                    high = middle - 1;
+                } else {
+                    return indexOfCollision(key, from, to, keyHash, middle);
+                }
+            }
+            return -low - 1;
+        }
+
+        private int indexOfCollision(String key, int from, int to, int keyHash, int match) {
+            int first = match;
+            while (first > 0 && children[first - 1].hash == keyHash) {
+                first--;
+            }
+            int i = first;
+            for (; i < children.length && children[i].hash == keyHash; i++) {
+                if (Keys.regionEquals(key, from, to, children[i].fragment)) {
+                    return i;
+                }
+            }
+            return -i - 1;
+        }
+    }
+
+    /**
+     * A new generation of the map built off to the side. The changes are applied to a private, mutable draft of the
+     * trie, which copies only the levels below which a key is changed and sorts every such level once, when
+     * {@link #publish()} freezes the draft and replaces the generation of the map with it in one step. The readers see
+     * either the previous generation or the new one, never a part of the changes.
+     * <p>
+     * A reload is not thread safe, it is meant to be filled and published by a single thread.
+     */
+    public final class Reload {
+
+        private final List<Change> changes = new ArrayList<>();
+        private final Node<V> base;
+        private Draft staged;
+        private boolean published;
+
+        private Reload(Node<V> base) {
+            this.base = base;
+            this.staged = new Draft(base);
+        }
+
+        /**
+         * Puts the element with the same semantics as {@link ConcurrentComplexStringKeyMap#put(String, Object)}.
+         *
+         * @param key complex key
+         * @param value element to store
+         * @return this reload
+         */
+        public Reload put(String key, V value) {
+            checkNotNull(key, value);
+            return apply(new Change(key, value, true));
+        }
+
+        /**
+         * @param key complex key to remove
+         * @return this reload
+         */
+        public Reload remove(String key) {
+            return apply(new Change(key, null, false));
+        }
+
+        /**
+         * Makes the new generation have exactly the given entries. Only the keys which differ from the previous
+         * generation are changed, the rest of the trie is shared with it. The entries are copied, the changes made
+         * after this call are applied on top of them.
+         * <p>
+         * If the map is modified before the reload is published, the difference is calculated again against the
+         * current generation, so the concurrent modifications are replaced as well.
+         *
+         * @param entries every entry of the new generation, including the key fragments
+         * @return this reload
+         */
+        public Reload replaceWith(Map<String, ? extends V> entries) {
+            Map<String, V> copy = new HashMap<>();
+            for (Map.Entry<String, ? extends V> entry : entries.entrySet()) {
+                checkNotNull(entry.getKey(), entry.getValue());
+                copy.put(entry.getKey(), entry.getValue());
+            }
+            return apply(new Change(copy));
+        }
+
+        /**
+         * Publishes the new generation. If the map was modified since this reload started, the changes of the reload
+         * are applied again on a draft of the current generation before publishing, so no modification is lost unless
+         * it is replaced by {@link #replaceWith(Map)}.
+         *
+         * @return the generation number of the published generation
+         */
+        public long publish() {
+            if (published) {
+                throw new IllegalStateException("Reload is already published");
+            }
+            published = true;
+            synchronized (writeLock) {
+                Draft draft = staged;
+                Node<V> previous = base;
+                if (root != base) {
+                    previous = root;
+                    draft = new Draft(root);
+                    for (Change change : changes) {
+                        draft = change.applyTo(draft);
+                    }
+                }
+                publishRoot(draft.freeze(previous));
+                return generation;
+            }
+        }
+
+        private Reload apply(Change change) {
+            if (published) {
+                throw new IllegalStateException("Reload is already published");
+            }
+            changes.add(change);
+            staged = change.applyTo(staged);
+            return this;
+        }
+    }
+
+    /**
+     * A change of a {@link Reload}: a put with or without filling the missing key fragments, a removal if the value
+     * is {@code null}, or replacing every entry if the entries are given.
+     */
+    private final class Change {
+
+        private final String key;
+        private final V value;
+        private final boolean fillFragments;
+        private final Map<String, V> entries;
+
+        private Change(String key, V value, boolean fillFragments) {
+            this.key = key;
+            this.value = value;
+            this.fillFragments = fillFragments;
+            this.entries = null;
+        }
+
+        private Change(Map<String, V> entries) {
+            this.key = null;
+            this.value = null;
+            this.fillFragments = false;
+            this.entries = entries;
+        }
+
+        /**
+         * @param draft the draft to change
+         * @return the changed draft, a new one if every entry is replaced
+         */
+        private Draft applyTo(Draft draft) {
+            if (entries != null) {
+                Draft replaced = new Draft(null, null);
+                for (Map.Entry<String, V> entry : entries.entrySet()) {
+                    replaced.put(entry.getKey(), entry.getValue(), false);
+                }
+                return replaced;
+            }
+            if (value != null) {
+                draft.put(key, value, fillFragments);
+            } else {
+                draft.remove(key);
+            }
+            return draft;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+
+        private final Node<V> snapshot;
+
+        private EntrySet() {
+            this.snapshot = root;
+        }
+
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            return new EntryIterator(snapshot);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size;
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, V>> {
+
+        private final Deque<Node<V>> nodes = new ArrayDeque<>();
+        private final Deque<String> keys = new ArrayDeque<>();
+        private Node<V> next;
+        private String nextKey;
+        private String lastReturnedKey;
+
+        private EntryIterator(Node<V> snapshot) {
+            pushChildren(snapshot, null);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, V> entry = new SimpleImmutableEntry<>(nextKey, next.value);
+            lastReturnedKey = nextKey;
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturnedKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentComplexStringKeyMap.this.remove(lastReturnedKey);
+            lastReturnedKey = null;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !nodes.isEmpty()) {
+                Node<V> node = nodes.pop();
+                String key = keys.pop();
+                pushChildren(node, key);
+                if (node.value != null) {
+                    next = node;
+                    nextKey = key;
+                }
+            }
+        }
+
+        private void pushChildren(Node<V> node, String key) {
+            for (Node<V> child : node.children) {
+                nodes.push(child);
+                keys.push(key == null ? child.fragment : key + keyDelimiter + child.fragment);
+            }
+        }
+    }
+}
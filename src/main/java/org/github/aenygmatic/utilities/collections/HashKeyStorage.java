@@ -0,0 +1,418 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Storage engine which stores every key fragment as a separate key of a hash table.
+ * <p>
+ * The table uses open addressing with the {@link String#hashCode()} of the keys, so a key fragment can be looked up by
+ * its offset in the complex key: the hash of a fragment is calculated incrementally while the key is scanned once and
+ * the stored keys are compared to the region of the complex key. Resolving a key does not create substrings. The
+ * delimiter is matched literally.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+class HashKeyStorage<V> extends AbstractMap<String, V> implements KeyStorage<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final Object REMOVED = new Object();
+
+    private final String keyDelimiter;
+    private Object[] keys = new Object[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int size;
+    private int removed;
+    private int modCount;
+
+    HashKeyStorage(String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+    }
+
+    @Override
+    public V resolve(String key) {
+        int index = indexOf(key, key.length(), key.hashCode());
+        if (index >= 0 && values[index] != null) {
+            return valueAt(index);
+        }
+        V element = null;
+        int hash = 0;
+        int from = 0;
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, key, from, end);
+            index = indexOf(key, end, hash);
+            if (index >= 0 && values[index] != null) {
+                element = valueAt(index);
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        return element;
+    }
+
+    @Override
+    public V resolve(String key, LookupMetrics metrics) {
+        int index = indexOf(key, key.length(), key.hashCode());
+        if (index >= 0 && values[index] != null) {
+            metrics.record(0, 1);
+            return valueAt(index);
+        }
+        V element = null;
+        int found = -1;
+        int level = 0;
+        int hash = 0;
+        int from = 0;
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, key, from, end);
+            index = indexOf(key, end, hash);
+            if (index >= 0 && values[index] != null) {
+                element = valueAt(index);
+                found = level;
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+            level++;
+        }
+        metrics.record(found < 0 ? -1 : level - found, level + 1);
+        return element;
+    }
+
+    @Override
+    public V resolve(Segments key) {
+        for (int count = key.count(); count > 0; count--) {
+            int index = indexOf(key, count);
+            if (index >= 0 && values[index] != null) {
+                return valueAt(index);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V putPath(String key, V value) {
+        int hash = 0;
+        int from = 0;
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, key, from, end);
+            if (indexOf(key, end, hash) < 0) {
+                put(key.substring(0, end), value);
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        return put(key, value);
+    }
+
+    @Override
+    public Iterator<Entry<String, V>> iteratorUnder(String prefix) {
+        return new EntryIterator(prefix);
+    }
+
+    @Override
+    public void forEachUnder(String prefix, EntryConsumer<? super String, ? super V> consumer) {
+        Object[] table = keys;
+        for (int i = 0; i < table.length; i++) {
+            if (isUnder(table[i], prefix)) {
+                consumer.accept((String) table[i], valueAt(i));
+            }
+        }
+    }
+
+    @Override
+    public int countUnder(String prefix) {
+        int count = 0;
+        for (Object stored : keys) {
+            if (isUnder(stored, prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        int hash = key.hashCode();
+        int mask = keys.length - 1;
+        int free = -1;
+        int i = Keys.spread(hash) & mask;
+        for (Object stored = keys[i]; stored != null; stored = keys[i]) {
+            if (stored == REMOVED) {
+                free = free < 0 ? i : free;
+            } else if (stored.hashCode() == hash && stored.equals(key)) {
+                V previous = valueAt(i);
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+        if (free >= 0) {
+            i = free;
+            removed--;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        modCount++;
+        if ((size + removed) * 2 > keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = valueAt(index);
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        keys = new Object[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        size = 0;
+        removed = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        String complexKey = (String) key;
+        return indexOf(complexKey, complexKey.length(), complexKey.hashCode());
+    }
+
+    private int indexOf(String key, int to, int hash) {
+        int mask = keys.length - 1;
+        int i = Keys.spread(hash) & mask;
+        for (Object stored = keys[i]; stored != null; stored = keys[i]) {
+            if (stored != REMOVED && stored.hashCode() == hash && Keys.regionEquals(key, 0, to, (String) stored)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int indexOf(Segments key, int count) {
+        int hash = key.hash(count);
+        int mask = keys.length - 1;
+        int i = Keys.spread(hash) & mask;
+        for (Object stored = keys[i]; stored != null; stored = keys[i]) {
+            if (stored != REMOVED && stored.hashCode() == hash && key.matches(count, (String) stored)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean isUnder(Object stored, String prefix) {
+        return stored != null && stored != REMOVED && Keys.isUnder((String) stored, prefix, keyDelimiter);
+    }
+
+    private void removeAt(int index) {
+        keys[index] = REMOVED;
+        values[index] = null;
+        size--;
+        removed++;
+        modCount++;
+    }
+
+    private void resize() {
+        Object[] previousKeys = keys;
+        Object[] previousValues = values;
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size * 4) {
+            capacity *= 2;
+        }
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        removed = 0;
+        int mask = capacity - 1;
+        for (int j = 0; j < previousKeys.length; j++) {
+            Object stored = previousKeys[j];
+            if (stored != null && stored != REMOVED) {
+                int i = Keys.spread(stored.hashCode()) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = stored;
+                values[i] = previousValues[j];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            return new EntryIterator(null);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            HashKeyStorage.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, V>> {
+
+        private final Object[] table = keys;
+        private final String prefix;
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        private EntryIterator(String prefix) {
+            this.prefix = prefix;
+            advance(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < table.length;
+        }
+
+        @Override
+        public Entry<String, V> next() {
+            if (next >= table.length) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            advance(next + 1);
+            return new TableEntry(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(lastReturned);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void advance(int from) {
+            next = from;
+            while (next < table.length && !isReturned(table[next])) {
+                next++;
+            }
+        }
+
+        private boolean isReturned(Object stored) {
+            return prefix == null ? stored != null && stored != REMOVED : isUnder(stored, prefix);
+        }
+    }
+
+    private class TableEntry implements Entry<String, V> {
+
+        private final String key;
+        private final int index;
+
+        private TableEntry(int index) {
+            this.key = (String) keys[index];
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return keys[index] == key ? valueAt(index) : get(key);
+        }
+
+        @Override
+        public V setValue(V value) {
+            return put(key, value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            V value = getValue();
+            return key.equals(other.getKey()) && (value == null ? other.getValue() == null
+                    : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            V value = getValue();
+            return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+}
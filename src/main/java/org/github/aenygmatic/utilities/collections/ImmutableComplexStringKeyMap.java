@@ -0,0 +1,273 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable and compact form of {@link ComplexStringKeyMap} for data which is built once and read many times. It can
+ * be created with {@link ComplexStringKeyMap#freeze()} or with a {@link Builder}.
+ * <p>
+ * The keys, the elements and the resolved elements are stored in parallel arrays sorted by key, indexed by an open
+ * addressing table of {@code int}s, so the map needs no entry objects. The fallback is resolved when the map is built:
+ * every key fragment stores the element of its deepest key fragment which has an element, so getting a stored key is a
+ * single probe and getting a key below it probes only the key fragments of the requested key.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+public final class ImmutableComplexStringKeyMap<V> extends AbstractMap<String, V> implements ComplexKeyMap<String, V> {
+
+    private final String keyDelimiter;
+    private final String[] keys;
+    private final Object[] values;
+    private final Object[] resolved;
+    private final int[] table;
+
+    ImmutableComplexStringKeyMap(Map<String, ? extends V> entries, String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+        int size = entries.size();
+        keys = new String[size];
+        values = new Object[size];
+        resolved = new Object[size];
+        table = new int[tableSize(size)];
+
+        int index = 0;
+        for (Map.Entry<String, ? extends V> entry : new TreeMap<>(entries).entrySet()) {
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
+            insert(index++);
+        }
+        for (int i = 0; i < size; i++) {
+            int parent = parentOf(keys[i]);
+            resolved[i] = values[i] != null || parent < 0 ? values[i] : resolved[parent];
+        }
+    }
+
+    /**
+     * @param <V> type of the stored element
+     * @return builder of a map with the default key delimiter
+     */
+    public static <V> Builder<V> builder() {
+        return new Builder<>(ComplexStringKeyMap.DEFAULT_DELIMITER);
+    }
+
+    /**
+     * @param <V> type of the stored element
+     * @param keyDelimiter the key delimiter
+     * @return builder of a map with the given key delimiter
+     */
+    public static <V> Builder<V> builder(String keyDelimiter) {
+        return new Builder<>(keyDelimiter);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String complexKey = (String) key;
+        int index = indexOf(complexKey, complexKey.length(), complexKey.hashCode());
+        if (index >= 0) {
+            return resolvedAt(index);
+        }
+        int deepest = -1;
+        int hash = 0;
+        int from = 0;
+        for (int end = complexKey.indexOf(keyDelimiter); end >= 0; end = complexKey.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, complexKey, from, end);
+            index = indexOf(complexKey, end, hash);
+            if (index >= 0) {
+                deepest = index;
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        return deepest < 0 ? null : resolvedAt(deepest);
+    }
+
+    @Override
+    public V getBySegments(Object... segments) {
+        Segments key = new Segments(segments, keyDelimiter);
+        for (int count = key.count(); count > 0; count--) {
+            int index = indexOf(key, count);
+            if (index >= 0) {
+                return resolvedAt(index);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V putBySegments(Object[] segments, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        String complexKey = (String) key;
+        return indexOf(complexKey, complexKey.length(), complexKey.hashCode()) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    public String getKeyDelimiter() {
+        return keyDelimiter;
+    }
+
+    private int parentOf(String key) {
+        for (int end = key.lastIndexOf(keyDelimiter); end > 0; end = key.lastIndexOf(keyDelimiter, end - 1)) {
+            int index = indexOf(key, end, Keys.hash(key, 0, end));
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String key, int to, int hash) {
+        int mask = table.length - 1;
+        for (int i = Keys.spread(hash) & mask; table[i] != 0; i = (i + 1) & mask) {
+            String stored = keys[table[i] - 1];
+            if (stored.hashCode() == hash && Keys.regionEquals(key, 0, to, stored)) {
+                return table[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(Segments key, int count) {
+        int hash = key.hash(count);
+        int mask = table.length - 1;
+        for (int i = Keys.spread(hash) & mask; table[i] != 0; i = (i + 1) & mask) {
+            String stored = keys[table[i] - 1];
+            if (stored.hashCode() == hash && key.matches(count, stored)) {
+                return table[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int i = Keys.spread(keys[index].hashCode()) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = index + 1;
+    }
+
+    private static int tableSize(int size) {
+        int tableSize = 2;
+        while (tableSize < size * 2) {
+            tableSize *= 2;
+        }
+        return tableSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V resolvedAt(int index) {
+        return (V) resolved[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * Collects the elements of an {@link ImmutableComplexStringKeyMap} with the same semantics as
+     * {@link ComplexStringKeyMap#put(String, Object)}.
+     *
+     * @param <V> type of the stored element
+     */
+    public static final class Builder<V> {
+
+        private final String keyDelimiter;
+        private final KeyStorage<V> entries;
+
+        private Builder(String keyDelimiter) {
+            this.keyDelimiter = keyDelimiter;
+            this.entries = new HashKeyStorage<>(keyDelimiter);
+        }
+
+        public Builder<V> put(String key, V value) {
+            entries.putPath(key, value);
+            return this;
+        }
+
+        public Builder<V> putAll(Map<? extends String, ? extends V> map) {
+            new BulkLoad<V>(map, keyDelimiter).into(entries, null);
+            return this;
+        }
+
+        public ImmutableComplexStringKeyMap<V> build() {
+            return new ImmutableComplexStringKeyMap<>(entries, keyDelimiter);
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            return new Iterator<Entry<String, V>>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < keys.length;
+                }
+
+                @Override
+                public Entry<String, V> next() {
+                    if (next >= keys.length) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, V> entry = new SimpleImmutableEntry<>(keys[next], valueAt(next));
+                    next++;
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return keys.length;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.Arrays;
+
+/**
+ * Index of complex keys for the maps storing their elements in arrays, e.g. in primitive arrays. The keys are
+ * numbered from {@code 0} to {@code size() - 1}, the elements of a map are stored in the same positions of its arrays.
+ * <p>
+ * The keys are found through an open addressing table with the {@link String#hashCode()} of the keys, so a key
+ * fragment is looked up by its offset in the complex key without creating substrings. The new keys are always
+ * numbered after the existing ones, and removing a key moves the last key to its number.
+ * <p>
+ * @author Balazs Berkes
+ */
+final class KeyIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String keyDelimiter;
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+    private int size;
+
+    KeyIndex(String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of keys which fit into the index without growing the arrays
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    String keyAt(int number) {
+        return keys[number];
+    }
+
+    String[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    /**
+     * @param key complex key
+     * @return the number of the key or {@code -1} if it is not stored
+     */
+    int indexOf(String key) {
+        return indexOf(key, key.length(), key.hashCode());
+    }
+
+    /**
+     * @param key complex key
+     * @return the number of the deepest stored key fragment of the key or {@code -1} if no fragment is stored
+     */
+    int resolve(String key) {
+        int number = indexOf(key);
+        if (number >= 0) {
+            return number;
+        }
+        int hash = 0;
+        int from = 0;
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, key, from, end);
+            int fragment = indexOf(key, end, hash);
+            if (fragment >= 0) {
+                number = fragment;
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        return number;
+    }
+
+    /**
+     * Adds the key and its key fragments which are not stored yet. The added keys get the numbers from the previous
+     * {@link #size()}, so the elements of the new keys can be set from there.
+     *
+     * @param key complex key
+     * @return the number of the key
+     */
+    int addPath(String key) {
+        int hash = 0;
+        int from = 0;
+        for (int end = key.indexOf(keyDelimiter); end >= 0; end = key.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, key, from, end);
+            if (indexOf(key, end, hash) < 0) {
+                add(key.substring(0, end));
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        int number = indexOf(key);
+        return number >= 0 ? number : add(key);
+    }
+
+    /**
+     * Removes the key with the given number. The last key gets the number of the removed one, so the elements of the
+     * map have to be moved the same way.
+     *
+     * @param number number of the key
+     * @return the previous number of the key which got the given number
+     */
+    int remove(int number) {
+        int last = size - 1;
+        removeSlot(slotOf(number));
+        if (number != last) {
+            table[slotOf(last)] = number + 1;
+            keys[number] = keys[last];
+        }
+        keys[last] = null;
+        size--;
+        return last;
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    private int add(String key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            table = new int[keys.length * 2];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+        keys[size] = key;
+        insert(size);
+        return size++;
+    }
+
+    private int indexOf(String key, int to, int hash) {
+        int mask = table.length - 1;
+        for (int i = Keys.spread(hash) & mask; table[i] != 0; i = (i + 1) & mask) {
+            String stored = keys[table[i] - 1];
+            if (stored.hashCode() == hash && Keys.regionEquals(key, 0, to, stored)) {
+                return table[i] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int number) {
+        int mask = table.length - 1;
+        int i = Keys.spread(keys[number].hashCode()) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = number + 1;
+    }
+
+    private int slotOf(int number) {
+        int mask = table.length - 1;
+        int i = Keys.spread(keys[number].hashCode()) & mask;
+        while (table[i] != number + 1) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void removeSlot(int slot) {
+        int mask = table.length - 1;
+        int free = slot;
+        table[free] = 0;
+        for (int i = (free + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int home = Keys.spread(keys[table[i] - 1].hashCode()) & mask;
+            if (free <= i ? free < home && home <= i : free < home || home <= i) {
+                continue;
+            }
+            table[free] = table[i];
+            table[i] = 0;
+            free = i;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Storage engine of {@link ComplexStringKeyMap}. Besides the exact key operations of a {@code Map} it provides the two
+ * hierarchical operations of the complex keys.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+interface KeyStorage<V> extends Map<String, V> {
+
+    /**
+     * Finds the element of the deepest key fragment of the given key which has an element.
+     *
+     * @param key complex key
+     * @return the element or {@code null} if no key fragment has element
+     */
+    V resolve(String key);
+
+    /**
+     * Finds the element of the deepest key fragment of the given key which has an element.
+     *
+     * @param key complex key given by its segments
+     * @return the element or {@code null} if no key fragment has element
+     */
+    V resolve(Segments key);
+
+    /**
+     * Resolves the key like {@link #resolve(String)} and records the lookup.
+     *
+     * @param key complex key
+     * @param metrics records the lookup
+     * @return the element or {@code null} if no key fragment has element
+     */
+    V resolve(String key, LookupMetrics metrics);
+
+    /**
+     * Associates the element to the key and to all key fragments of the key which are not associated yet.
+     *
+     * @param key complex key
+     * @param value element to store
+     * @return the previous element of the key
+     */
+    V putPath(String key, V value);
+
+    /**
+     * @param prefix complex key of the subtree
+     * @return iterator of the entries of the prefix and the keys below it, which supports removal
+     */
+    Iterator<Entry<String, V>> iteratorUnder(String prefix);
+
+    /**
+     * @param prefix complex key of the subtree
+     * @param consumer receives the entries of the prefix and the keys below it
+     */
+    void forEachUnder(String prefix, EntryConsumer<? super String, ? super V> consumer);
+
+    /**
+     * @param prefix complex key of the subtree
+     * @return the number of the entries of the prefix and the keys below it
+     */
+    int countUnder(String prefix);
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+/**
+ * Helper functions to work on the fragments of a complex key by their offsets, without creating substrings.
+ * <p>
+ * @author Balazs Berkes
+ */
+final class Keys {
+
+    /**
+     * Calculates the hash of a region of the key, equal to the {@link String#hashCode()} of the substring.
+     *
+     * @param key complex key
+     * @param from start of the region (included)
+     * @param to end of the region (excluded)
+     * @return hash of the region
+     */
+    static int hash(String key, int from, int to) {
+        return hash(0, key, from, to);
+    }
+
+    /**
+     * Continues the hash of a string with a region of the key. The hash of a key prefix can be calculated this way
+     * fragment by fragment, equal to the {@link String#hashCode()} of the prefix.
+     *
+     * @param hash hash of the preceding characters
+     * @param key complex key
+     * @param from start of the region (included)
+     * @param to end of the region (excluded)
+     * @return hash of the preceding characters followed by the region
+     */
+    static int hash(int hash, String key, int from, int to) {
+        int result = hash;
+        for (int i = from; i < to; i++) {
+            result = 31 * result + key.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * @param key complex key
+     * @param from start of the region (included)
+     * @param to end of the region (excluded)
+     * @param candidate the string to compare with
+     * @return {@code true} if the region of the key equals to the candidate
+     */
+    static boolean regionEquals(String key, int from, int to, String candidate) {
+        return candidate.length() == to - from && key.regionMatches(from, candidate, 0, to - from);
+    }
+
+    /**
+     * @param key complex key
+     * @param keyDelimiter the key delimiter
+     * @return the number of key delimiters in the key, {@code 0} for a single key fragment
+     */
+    static int depth(String key, String keyDelimiter) {
+        int depth = 0;
+        int end = key.indexOf(keyDelimiter);
+        while (end >= 0) {
+            depth++;
+            end = key.indexOf(keyDelimiter, end + keyDelimiter.length());
+        }
+        return depth;
+    }
+
+    /**
+     * @param key complex key
+     * @param prefix complex key of the subtree
+     * @param keyDelimiter the key delimiter
+     * @return {@code true} if the key is the prefix or below it
+     */
+    static boolean isUnder(String key, String prefix, String keyDelimiter) {
+        return key.startsWith(prefix)
+                && (key.length() == prefix.length() || key.startsWith(keyDelimiter, prefix.length()));
+    }
+
+    /**
+     * Spreads the higher bits of the hash to the lower ones, which are used to index the tables.
+     *
+     * @param hash hash of a key
+     * @return spread hash
+     */
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private Keys() {
+    }
+}
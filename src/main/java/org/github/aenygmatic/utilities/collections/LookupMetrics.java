@@ -0,0 +1,63 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.Arrays;
+
+/**
+ * Counters of the lookups of a {@link ComplexStringKeyMap}. Like the map, the counters are not thread safe.
+ * <p>
+ * @author Balazs Berkes
+ */
+final class LookupMetrics {
+
+    private long lookups;
+    private long exactHits;
+    private long misses;
+    private long probes;
+    private long totalNanos;
+    private long[] fallbackHits = new long[8];
+
+    /**
+     * Records a resolved lookup.
+     *
+     * @param levelsUp the number of levels between the requested key and the key fragment which had the element,
+     * {@code 0} for an exact hit or {@code -1} if no key fragment had element
+     * @param lookedUpFragments the number of key fragments looked up
+     */
+    void record(int levelsUp, int lookedUpFragments) {
+        lookups++;
+        probes += lookedUpFragments;
+        if (levelsUp == 0) {
+            exactHits++;
+        } else if (levelsUp < 0) {
+            misses++;
+        } else {
+            if (levelsUp >= fallbackHits.length) {
+                fallbackHits = Arrays.copyOf(fallbackHits, Math.max(levelsUp + 1, fallbackHits.length * 2));
+            }
+            fallbackHits[levelsUp]++;
+        }
+    }
+
+    void recordTime(long nanos) {
+        totalNanos += nanos;
+    }
+
+    LookupStatistics snapshot() {
+        return new LookupStatistics(lookups, exactHits, fallbackHits.clone(), misses, probes, totalNanos);
+    }
+}
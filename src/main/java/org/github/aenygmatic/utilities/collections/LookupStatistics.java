@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the lookups of a {@link ComplexStringKeyMap} since its metrics were enabled.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LookupStatistics {
+
+    private final long lookups;
+    private final long exactHits;
+    private final long[] fallbackHits;
+    private final long misses;
+    private final long probes;
+    private final long totalNanos;
+
+    LookupStatistics(long lookups, long exactHits, long[] fallbackHits, long misses, long probes, long totalNanos) {
+        this.lookups = lookups;
+        this.exactHits = exactHits;
+        this.fallbackHits = fallbackHits;
+        this.misses = misses;
+        this.probes = probes;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * @return the number of lookups resolved by the map
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the number of lookups which found an element for the requested key itself
+     */
+    public long getExactHits() {
+        return exactHits;
+    }
+
+    /**
+     * @param levelsUp the number of levels above the requested key
+     * @return the number of lookups which found the element that many levels above the requested key
+     */
+    public long getFallbackHits(int levelsUp) {
+        return levelsUp > 0 && levelsUp < fallbackHits.length ? fallbackHits[levelsUp] : 0;
+    }
+
+    /**
+     * @return the number of lookups which found the element above the requested key
+     */
+    public long getFallbackHits() {
+        long sum = 0;
+        for (long hits : fallbackHits) {
+            sum += hits;
+        }
+        return sum;
+    }
+
+    /**
+     * @return the number of lookups which found no element
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the average number of key fragments looked up per lookup
+     */
+    public double getAverageProbes() {
+        return lookups == 0 ? 0 : (double) probes / lookups;
+    }
+
+    /**
+     * @param unit the unit of the result
+     * @return the time spent resolving the lookups
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the average time of a lookup in nanoseconds
+     */
+    public double getAverageNanos() {
+        return lookups == 0 ? 0 : (double) totalNanos / lookups;
+    }
+}
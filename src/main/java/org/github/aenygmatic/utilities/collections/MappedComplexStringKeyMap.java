@@ -0,0 +1,453 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable {@link ComplexKeyMap} which reads a binary file mapped into the memory. A map is written once with
+ * {@link #write(Map, String, ValueCodec, File)} and opened with {@link #open(File, ValueCodec)} by any number of
+ * processes, so loading a large map is a memory mapping instead of parsing and building it.
+ * <p>
+ * The file contains the keys as UTF-16 characters, an open addressing table of the keys and the fallback of every key
+ * fragment resolved when the file was written, like in {@link ImmutableComplexStringKeyMap}. A lookup compares the
+ * requested key with the characters in the file, so only the elements are decoded, when they are first requested. The
+ * decoded elements are kept in the memory.
+ * <p>
+ * The file is limited to 2GB, the size of a single memory mapping. Opening a file checks that the offsets of the file
+ * stay within the file, which reads the table and the entries but not the keys and the elements.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+public final class MappedComplexStringKeyMap<V> extends AbstractMap<String, V> implements ComplexKeyMap<String, V> {
+
+    private static final long MAGIC = 0x436f6d706c65784bL;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 28;
+    private static final int ENTRY_SIZE = 24;
+    private static final int HASH_OFFSET = 0;
+    private static final int KEY_OFFSET = 4;
+    private static final int KEY_LENGTH_OFFSET = 8;
+    private static final int RESOLVED_OFFSET = 12;
+    private static final int VALUE_OFFSET = 16;
+    private static final int VALUE_LENGTH_OFFSET = 20;
+    private static final int NULL_LENGTH = -1;
+
+    private final ByteBuffer buffer;
+    private final ValueCodec<V> codec;
+    private final String keyDelimiter;
+    private final int size;
+    private final int tableLength;
+    private final int tableStart;
+    private final int entriesStart;
+    private final int charsStart;
+    private final int valuesStart;
+    private final AtomicReferenceArray<V> decoded;
+
+    private MappedComplexStringKeyMap(ByteBuffer buffer, ValueCodec<V> codec) throws IOException {
+        this.buffer = buffer;
+        this.codec = codec;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+            throw new IOException("Not a complex key map file");
+        }
+        size = buffer.getInt(12);
+        tableLength = buffer.getInt(16);
+        int delimiterLength = buffer.getInt(20);
+        int totalChars = buffer.getInt(24);
+        if (size < 0 || tableLength <= size || Integer.bitCount(tableLength) != 1 || delimiterLength < 0
+                || totalChars < 0) {
+            throw new IOException("Corrupted complex key map file: invalid header");
+        }
+        long valuesEnd = HEADER_SIZE + 2L * delimiterLength + 4L * tableLength + (long) ENTRY_SIZE * size
+                + 2L * totalChars;
+        if (valuesEnd > buffer.limit()) {
+            throw new IOException("Corrupted complex key map file: sections exceed the file");
+        }
+        keyDelimiter = readChars(HEADER_SIZE, delimiterLength);
+        tableStart = HEADER_SIZE + 2 * delimiterLength;
+        entriesStart = tableStart + 4 * tableLength;
+        charsStart = entriesStart + ENTRY_SIZE * size;
+        valuesStart = charsStart + 2 * totalChars;
+        checkOffsets(totalChars);
+        decoded = new AtomicReferenceArray<>(size);
+    }
+
+    private void checkOffsets(int totalChars) throws IOException {
+        for (int i = 0; i < tableLength; i++) {
+            int slot = buffer.getInt(tableStart + 4 * i);
+            if (slot < 0 || slot > size) {
+                throw new IOException("Corrupted complex key map file: invalid table slot " + i);
+            }
+        }
+        long valuesLength = buffer.limit() - valuesStart;
+        for (int i = 0; i < size; i++) {
+            long keyOffset = entryInt(i, KEY_OFFSET);
+            long keyLength = entryInt(i, KEY_LENGTH_OFFSET);
+            int resolved = entryInt(i, RESOLVED_OFFSET);
+            long valueOffset = entryInt(i, VALUE_OFFSET);
+            long valueLength = entryInt(i, VALUE_LENGTH_OFFSET);
+            if (keyOffset < 0 || keyLength < 0 || keyOffset + keyLength > totalChars || resolved < -1
+                    || resolved >= size || valueOffset < 0 || valueLength < NULL_LENGTH
+                    || valueOffset + Math.max(valueLength, 0) > valuesLength) {
+                throw new IOException("Corrupted complex key map file: invalid entry " + i);
+            }
+        }
+    }
+
+    /**
+     * Opens a map written by {@link #write(Map, String, ValueCodec, File)}.
+     *
+     * @param <V> type of the stored element
+     * @param file the file of the map
+     * @param codec the codec which the map was written with
+     * @return the map
+     * @throws IOException if the file could not be mapped or it is not a valid map file
+     */
+    public static <V> MappedComplexStringKeyMap<V> open(File file, ValueCodec<V> codec) throws IOException {
+        try (RandomAccessFile mapped = new RandomAccessFile(file, "r")) {
+            FileChannel channel = mapped.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedComplexStringKeyMap<>(buffer, codec);
+        }
+    }
+
+    /**
+     * Writes the elements of the map to a file, which can be opened with {@link #open(File, ValueCodec)}. The keys of
+     * the map are written as they are stored, the key fragments of a {@link ComplexKeyMap} are stored as separate keys.
+     *
+     * @param <V> type of the stored element
+     * @param map the elements to write
+     * @param keyDelimiter the key delimiter of the keys
+     * @param codec the codec of the elements
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     * @throws IllegalArgumentException if the encoded map would exceed the 2GB limit of the file
+     */
+    public static <V> void write(Map<String, ? extends V> map, String keyDelimiter, ValueCodec<? super V> codec,
+            File file) throws IOException {
+        int size = map.size();
+        String[] keys = new String[size];
+        byte[][] values = new byte[size][];
+        Map<String, Integer> indexes = new HashMap<>();
+        long totalChars = 0;
+        long totalBytes = 0;
+        int index = 0;
+        for (Map.Entry<String, ? extends V> entry : new TreeMap<String, V>(map).entrySet()) {
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue() == null ? null : codec.encode(entry.getValue());
+            indexes.put(entry.getKey(), index);
+            totalChars += entry.getKey().length();
+            totalBytes += values[index] == null ? 0 : values[index].length;
+            index++;
+        }
+        long fileSize = HEADER_SIZE + 2L * keyDelimiter.length() + (long) ENTRY_SIZE * size + 2 * totalChars
+                + totalBytes;
+        if (size > Integer.MAX_VALUE / 8 || fileSize + 4L * tableLength(size) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The encoded map exceeds the 2GB limit of the file");
+        }
+        int[] table = new int[tableLength(size)];
+        int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = Keys.spread(keys[i].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(table.length);
+            out.writeInt(keyDelimiter.length());
+            out.writeInt((int) totalChars);
+            out.writeChars(keyDelimiter);
+            for (int slot : table) {
+                out.writeInt(slot);
+            }
+            int[] resolved = new int[size];
+            int keyOffset = 0;
+            int valueOffset = 0;
+            for (int i = 0; i < size; i++) {
+                int parent = parentOf(keys[i], keyDelimiter, indexes);
+                resolved[i] = values[i] != null || parent < 0 ? i : resolved[parent];
+                out.writeInt(keys[i].hashCode());
+                out.writeInt(keyOffset);
+                out.writeInt(keys[i].length());
+                out.writeInt(values[resolved[i]] == null ? -1 : resolved[i]);
+                out.writeInt(valueOffset);
+                out.writeInt(values[i] == null ? NULL_LENGTH : values[i].length);
+                keyOffset += keys[i].length();
+                valueOffset += values[i] == null ? 0 : values[i].length;
+            }
+            for (String key : keys) {
+                out.writeChars(key);
+            }
+            for (byte[] value : values) {
+                if (value != null) {
+                    out.write(value);
+                }
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String complexKey = (String) key;
+        int index = indexOf(complexKey, complexKey.length(), complexKey.hashCode());
+        if (index >= 0) {
+            return resolvedAt(index);
+        }
+        int deepest = -1;
+        int hash = 0;
+        int from = 0;
+        for (int end = complexKey.indexOf(keyDelimiter); end >= 0; end = complexKey.indexOf(keyDelimiter, from)) {
+            hash = Keys.hash(hash, complexKey, from, end);
+            index = indexOf(complexKey, end, hash);
+            if (index >= 0) {
+                deepest = index;
+            }
+            hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            from = end + keyDelimiter.length();
+        }
+        return deepest < 0 ? null : resolvedAt(deepest);
+    }
+
+    @Override
+    public V getBySegments(Object... segments) {
+        Segments key = new Segments(segments, keyDelimiter);
+        for (int count = key.count(); count > 0; count--) {
+            int index = indexOf(key, count);
+            if (index >= 0) {
+                return resolvedAt(index);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public V putBySegments(Object[] segments, V value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        String complexKey = (String) key;
+        return indexOf(complexKey, complexKey.length(), complexKey.hashCode()) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    public String getKeyDelimiter() {
+        return keyDelimiter;
+    }
+
+    private static int parentOf(String key, String keyDelimiter, Map<String, Integer> indexes) {
+        for (int end = key.lastIndexOf(keyDelimiter); end > 0; end = key.lastIndexOf(keyDelimiter, end - 1)) {
+            Integer index = indexes.get(key.substring(0, end));
+            if (index != null) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static int tableLength(int size) {
+        int tableLength = 2;
+        while (tableLength < size * 2) {
+            tableLength *= 2;
+        }
+        return tableLength;
+    }
+
+    private int indexOf(String key, int to, int hash) {
+        int mask = tableLength - 1;
+        for (int i = Keys.spread(hash) & mask;; i = (i + 1) & mask) {
+            int index = buffer.getInt(tableStart + 4 * i) - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (entryInt(index, HASH_OFFSET) == hash && keyEquals(index, key, to)) {
+                return index;
+            }
+        }
+    }
+
+    private int indexOf(Segments key, int count) {
+        int hash = key.hash(count);
+        int mask = tableLength - 1;
+        for (int i = Keys.spread(hash) & mask;; i = (i + 1) & mask) {
+            int index = buffer.getInt(tableStart + 4 * i) - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (entryInt(index, HASH_OFFSET) == hash && key.matches(count, new MappedKey(index))) {
+                return index;
+            }
+        }
+    }
+
+    private boolean keyEquals(int index, String key, int to) {
+        if (entryInt(index, KEY_LENGTH_OFFSET) != to) {
+            return false;
+        }
+        int start = charsStart + 2 * entryInt(index, KEY_OFFSET);
+        for (int i = 0; i < to; i++) {
+            if (buffer.getChar(start + 2 * i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private V resolvedAt(int index) {
+        int resolved = entryInt(index, RESOLVED_OFFSET);
+        return resolved < 0 ? null : valueAt(resolved);
+    }
+
+    private V valueAt(int index) {
+        int length = entryInt(index, VALUE_LENGTH_OFFSET);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        V value = decoded.get(index);
+        if (value == null) {
+            ByteBuffer bytes = buffer.asReadOnlyBuffer();
+            bytes.position(valuesStart + entryInt(index, VALUE_OFFSET));
+            bytes.limit(bytes.position() + length);
+            value = codec.decode(bytes.slice());
+            decoded.lazySet(index, value);
+        }
+        return value;
+    }
+
+    private String keyAt(int index) {
+        return readChars(charsStart + 2 * entryInt(index, KEY_OFFSET), entryInt(index, KEY_LENGTH_OFFSET));
+    }
+
+    private String readChars(int start, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(start + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    private int entryInt(int index, int offset) {
+        return buffer.getInt(entriesStart + ENTRY_SIZE * index + offset);
+    }
+
+    /**
+     * The characters of a key in the file.
+     */
+    private final class MappedKey implements CharSequence {
+
+        private final int start;
+        private final int length;
+
+        private MappedKey(int index) {
+            this.start = charsStart + 2 * entryInt(index, KEY_OFFSET);
+            this.length = entryInt(index, KEY_LENGTH_OFFSET);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return buffer.getChar(start + 2 * index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().subSequence(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return readChars(start, length);
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            return new Iterator<Entry<String, V>>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Entry<String, V> next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, V> entry = new SimpleImmutableEntry<>(keyAt(next), valueAt(next));
+                    next++;
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
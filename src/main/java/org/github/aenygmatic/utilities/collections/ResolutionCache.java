@@ -0,0 +1,153 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded cache of the resolved elements of {@link ComplexStringKeyMap}, keyed by the requested key. The negative
+ * results are cached as well. When the cache is full the least recently used key is evicted.
+ * <p>
+ * The cached keys are indexed by their key prefixes, so invalidating a key touches only the cached keys below it. The
+ * methods are synchronized on the cache, because even reading moves the requested key in the access order.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+final class ResolutionCache<V> {
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final Map<String, Object> resolved;
+    private final Map<String, Set<String>> keysByPrefix = new HashMap<>();
+    private final String keyDelimiter;
+    private long hits;
+    private long misses;
+
+    ResolutionCache(final int maximumSize, String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+        this.resolved = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                if (size() > maximumSize) {
+                    unindex(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param key the requested key
+     * @return {@code true} if the resolved element of the key is cached
+     */
+    synchronized boolean contains(String key) {
+        boolean cached = resolved.containsKey(key);
+        if (cached) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    /**
+     * @param key the requested key which is {@link #contains(String) cached}
+     * @return the cached element
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V get(String key) {
+        Object element = resolved.get(key);
+        return element == NOT_FOUND ? null : (V) element;
+    }
+
+    synchronized void put(String key, V element) {
+        if (resolved.put(key, element == null ? NOT_FOUND : element) == null) {
+            index(key);
+        }
+    }
+
+    /**
+     * Evicts the given key and all keys below it, which are the keys whose resolution may depend on the element of the
+     * given key.
+     *
+     * @param key complex key
+     */
+    synchronized void invalidate(String key) {
+        Set<String> cachedKeys = keysByPrefix.get(key);
+        if (cachedKeys == null) {
+            return;
+        }
+        for (String cachedKey : cachedKeys.toArray(new String[cachedKeys.size()])) {
+            resolved.remove(cachedKey);
+            unindex(cachedKey);
+        }
+    }
+
+    synchronized void clear() {
+        resolved.clear();
+        keysByPrefix.clear();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    private void index(String key) {
+        int end = key.indexOf(keyDelimiter);
+        while (end >= 0) {
+            keysUnder(key.substring(0, end)).add(key);
+            end = key.indexOf(keyDelimiter, end + keyDelimiter.length());
+        }
+        keysUnder(key).add(key);
+    }
+
+    private void unindex(String key) {
+        int end = key.indexOf(keyDelimiter);
+        while (end >= 0) {
+            removeFromPrefix(key.substring(0, end), key);
+            end = key.indexOf(keyDelimiter, end + keyDelimiter.length());
+        }
+        removeFromPrefix(key, key);
+    }
+
+    private Set<String> keysUnder(String prefix) {
+        Set<String> keys = keysByPrefix.get(prefix);
+        if (keys == null) {
+            keys = new HashSet<>();
+            keysByPrefix.put(prefix, keys);
+        }
+        return keys;
+    }
+
+    private void removeFromPrefix(String prefix, String key) {
+        Set<String> keys = keysByPrefix.get(prefix);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByPrefix.remove(prefix);
+        }
+    }
+}
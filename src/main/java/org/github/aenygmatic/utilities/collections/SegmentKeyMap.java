@@ -0,0 +1,311 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link ComplexKeyMap} whose keys are lists of segments of any type, e.g. a tenant id, a region enum and a product
+ * id. The segments are compared with {@link Object#equals(Object)}, so the keys need not be converted to
+ * {@code String}s and joined, and the map need not split them again.
+ * <p>
+ * Getting an element for a key uses the same fallback strategy as {@link ComplexStringKeyMap}: for the key
+ * {@code [A, B, C]} the element of the key {@code [A, B]} will return if no direct association is made to
+ * {@code [A, B, C]}. Putting an element associates it to all parent keys which are not associated yet.
+ * <p>
+ * The keys are stored in a trie of segments. The keys returned by the views are unmodifiable lists.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+public class SegmentKeyMap<V> extends AbstractMap<List<?>, V> implements ComplexKeyMap<List<?>, V> {
+
+    private final Node<V> root = new Node<>(null, null);
+    private int size;
+    private int modCount;
+
+    public SegmentKeyMap() {
+    }
+
+    public SegmentKeyMap(Map<? extends List<?>, ? extends V> map) {
+        putAll(map);
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof List ? resolve((List<?>) key) : null;
+    }
+
+    @Override
+    public V getBySegments(Object... segments) {
+        return resolve(Arrays.asList(segments));
+    }
+
+    @Override
+    public V put(List<?> key, V value) {
+        Node<V> node = root;
+        int last = key.size() - 1;
+        for (int i = 0; i < last; i++) {
+            node = node.childToWrite(key.get(i));
+            if (!node.present) {
+                setValue(node, value);
+            }
+        }
+        return setValue(last < 0 ? root : node.childToWrite(key.get(last)), value);
+    }
+
+    @Override
+    public V putBySegments(Object[] segments, V value) {
+        return put(Arrays.asList(segments), value);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<V> node = find(key);
+        return node != null && node.present;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<V> node = find(key);
+        if (node == null || !node.present) {
+            return null;
+        }
+        V previous = node.value;
+        removeNode(node);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        root.children = null;
+        root.present = false;
+        root.value = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<List<?>, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private V resolve(List<?> key) {
+        Node<V> node = root;
+        V element = root.value;
+        for (Object segment : key) {
+            node = node.child(segment);
+            if (node == null) {
+                return element;
+            }
+            if (node.value != null) {
+                element = node.value;
+            }
+        }
+        return element;
+    }
+
+    private Node<V> find(Object key) {
+        if (!(key instanceof List)) {
+            return null;
+        }
+        Node<V> node = root;
+        for (Object segment : (List<?>) key) {
+            node = node.child(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private V setValue(Node<V> node, V value) {
+        V previous = node.value;
+        node.value = value;
+        if (!node.present) {
+            node.present = true;
+            size++;
+            modCount++;
+        }
+        return previous;
+    }
+
+    private void removeNode(Node<V> node) {
+        node.present = false;
+        node.value = null;
+        size--;
+        modCount++;
+        Node<V> current = node;
+        while (current.parent != null && !current.present && current.isLeaf()) {
+            current.parent.children.remove(current.segment);
+            current = current.parent;
+        }
+    }
+
+    private static List<?> keyOf(Node<?> node) {
+        Deque<Object> segments = new ArrayDeque<>();
+        for (Node<?> current = node; current.parent != null; current = current.parent) {
+            segments.push(current.segment);
+        }
+        return Collections.unmodifiableList(Arrays.asList(segments.toArray()));
+    }
+
+    private static final class Node<E> {
+
+        private final Object segment;
+        private final Node<E> parent;
+        private Map<Object, Node<E>> children;
+        private E value;
+        private boolean present;
+
+        private Node(Object segment, Node<E> parent) {
+            this.segment = segment;
+            this.parent = parent;
+        }
+
+        private Node<E> child(Object childSegment) {
+            return children == null ? null : children.get(childSegment);
+        }
+
+        private Node<E> childToWrite(Object childSegment) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            Node<E> child = children.get(childSegment);
+            if (child == null) {
+                child = new Node<>(childSegment, this);
+                children.put(childSegment, child);
+            }
+            return child;
+        }
+
+        private boolean isLeaf() {
+            return children == null || children.isEmpty();
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<List<?>, V>> {
+
+        @Override
+        public Iterator<Entry<List<?>, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            SegmentKeyMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<List<?>, V>> {
+
+        private final Deque<Node<V>> stack = new ArrayDeque<>();
+        private Node<V> next;
+        private Node<V> lastReturned;
+        private int expectedModCount = modCount;
+
+        private EntryIterator() {
+            stack.push(root);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<List<?>, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            advance();
+            return new NodeEntry(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeNode(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !stack.isEmpty()) {
+                Node<V> node = stack.pop();
+                if (node.children != null) {
+                    for (Node<V> child : node.children.values()) {
+                        stack.push(child);
+                    }
+                }
+                if (node.present) {
+                    next = node;
+                }
+            }
+        }
+    }
+
+    private class NodeEntry extends SimpleEntry<List<?>, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Node<V> node;
+
+        private NodeEntry(Node<V> node) {
+            super(keyOf(node), node.value);
+            this.node = node;
+        }
+
+        @Override
+        public V setValue(V value) {
+            node.value = value;
+            return super.setValue(value);
+        }
+    }
+}
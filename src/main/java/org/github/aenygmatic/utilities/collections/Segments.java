@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+/**
+ * A complex key given by its segments, which can be looked up in the maps storing the keys as delimited
+ * {@code String}s without joining the segments. The segments are converted with {@link String#valueOf(Object)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+final class Segments {
+
+    private final String[] parts;
+    private final String keyDelimiter;
+    private final int[] hashes;
+
+    Segments(Object[] segments, String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+        this.parts = new String[segments.length];
+        this.hashes = new int[segments.length];
+        int hash = 0;
+        for (int i = 0; i < segments.length; i++) {
+            parts[i] = String.valueOf(segments[i]);
+            if (i > 0) {
+                hash = Keys.hash(hash, keyDelimiter, 0, keyDelimiter.length());
+            }
+            hash = Keys.hash(hash, parts[i], 0, parts[i].length());
+            hashes[i] = hash;
+        }
+    }
+
+    int count() {
+        return parts.length;
+    }
+
+    String segment(int index) {
+        return parts[index];
+    }
+
+    /**
+     * @param count number of the leading segments
+     * @return the {@link String#hashCode()} of the leading segments joined with the delimiter
+     */
+    int hash(int count) {
+        return hashes[count - 1];
+    }
+
+    /**
+     * @param count number of the leading segments
+     * @param candidate the key to compare with
+     * @return {@code true} if the leading segments joined with the delimiter equal to the candidate
+     */
+    boolean matches(int count, CharSequence candidate) {
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                if (!regionMatches(candidate, position, keyDelimiter)) {
+                    return false;
+                }
+                position += keyDelimiter.length();
+            }
+            if (!regionMatches(candidate, position, parts[i])) {
+                return false;
+            }
+            position += parts[i].length();
+        }
+        return position == candidate.length();
+    }
+
+    /**
+     * @param count number of the leading segments
+     * @return the leading segments joined with the delimiter
+     */
+    String join(int count) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                key.append(keyDelimiter);
+            }
+            key.append(parts[i]);
+        }
+        return key.toString();
+    }
+
+    private static boolean regionMatches(CharSequence candidate, int position, String part) {
+        if (candidate.length() - position < part.length()) {
+            return false;
+        }
+        for (int i = 0; i < part.length(); i++) {
+            if (candidate.charAt(position + i) != part.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
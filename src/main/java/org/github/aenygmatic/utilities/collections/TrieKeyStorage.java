@@ -0,0 +1,491 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Storage engine which stores the complex keys as a trie of key fragments. The common key fragments of the keys are
+ * stored only once and a lookup walks the key only once, matching the key fragments by their offsets in the key.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the stored element
+ */
+class TrieKeyStorage<V> extends AbstractMap<String, V> implements KeyStorage<V> {
+
+    private final String keyDelimiter;
+    private final Node<V> root = new Node<>(null, null, 0);
+    private int size;
+    private int modCount;
+
+    TrieKeyStorage(String keyDelimiter) {
+        this.keyDelimiter = keyDelimiter;
+    }
+
+    @Override
+    public V resolve(String key) {
+        V element = null;
+        Node<V> node = root;
+        int from = 0;
+        for (;;) {
+            int end = key.indexOf(keyDelimiter, from);
+            int to = end < 0 ? key.length() : end;
+            node = node.child(key, from, to);
+            if (node == null) {
+                return element;
+            }
+            if (node.value != null) {
+                element = node.value;
+            }
+            if (end < 0) {
+                return element;
+            }
+            from = end + keyDelimiter.length();
+        }
+    }
+
+    @Override
+    public V resolve(String key, LookupMetrics metrics) {
+        V element = null;
+        int found = -1;
+        int level = 0;
+        Node<V> node = root;
+        int from = 0;
+        for (;;) {
+            int end = key.indexOf(keyDelimiter, from);
+            int to = end < 0 ? key.length() : end;
+            node = node.child(key, from, to);
+            if (node != null && node.value != null) {
+                element = node.value;
+                found = level;
+            }
+            if (node == null || end < 0) {
+                break;
+            }
+            from = end + keyDelimiter.length();
+            level++;
+        }
+        metrics.record(found < 0 ? -1 : Keys.depth(key, keyDelimiter) - found, level + 1);
+        return element;
+    }
+
+    @Override
+    public V resolve(Segments key) {
+        V element = null;
+        Node<V> node = root;
+        for (int i = 0; i < key.count(); i++) {
+            String segment = key.segment(i);
+            node = node.child(segment, 0, segment.length());
+            if (node == null) {
+                return element;
+            }
+            if (node.value != null) {
+                element = node.value;
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public V putPath(String key, V value) {
+        Node<V> node = root;
+        int from = 0;
+        for (;;) {
+            int end = key.indexOf(keyDelimiter, from);
+            int to = end < 0 ? key.length() : end;
+            node = childToWrite(node, key, from, to);
+            if (end < 0) {
+                return setValue(node, value);
+            }
+            if (!node.present) {
+                setValue(node, value);
+            }
+            from = end + keyDelimiter.length();
+        }
+    }
+
+    @Override
+    public Iterator<Entry<String, V>> iteratorUnder(String prefix) {
+        Node<V> node = find(prefix);
+        return node == null ? Collections.<Entry<String, V>>emptyIterator() : new EntryIterator(node);
+    }
+
+    @Override
+    public void forEachUnder(String prefix, EntryConsumer<? super String, ? super V> consumer) {
+        Node<V> node = find(prefix);
+        if (node != null) {
+            forEach(node, new StringBuilder(prefix), consumer);
+        }
+    }
+
+    @Override
+    public int countUnder(String prefix) {
+        Node<V> node = find(prefix);
+        return node == null ? 0 : node.count;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        Node<V> node = find(key);
+        return node != null && node.present;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        Node<V> node = root;
+        int from = 0;
+        for (;;) {
+            int end = key.indexOf(keyDelimiter, from);
+            int to = end < 0 ? key.length() : end;
+            node = childToWrite(node, key, from, to);
+            if (end < 0) {
+                return setValue(node, value);
+            }
+            from = end + keyDelimiter.length();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<V> node = find(key);
+        if (node == null || !node.present) {
+            return null;
+        }
+        V previous = node.value;
+        removeNode(node);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        root.children = null;
+        root.childCount = 0;
+        root.count = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    private Node<V> find(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String complexKey = (String) key;
+        Node<V> node = root;
+        int from = 0;
+        for (;;) {
+            int end = complexKey.indexOf(keyDelimiter, from);
+            int to = end < 0 ? complexKey.length() : end;
+            node = node.child(complexKey, from, to);
+            if (node == null || end < 0) {
+                return node;
+            }
+            from = end + keyDelimiter.length();
+        }
+    }
+
+    private Node<V> childToWrite(Node<V> node, String key, int from, int to) {
+        Node<V> child = node.child(key, from, to);
+        if (child == null) {
+            child = node.addChild(key.substring(from, to));
+        }
+        return child;
+    }
+
+    private V setValue(Node<V> node, V value) {
+        V previous = node.value;
+        node.value = value;
+        if (!node.present) {
+            node.present = true;
+            for (Node<V> current = node; current != null; current = current.parent) {
+                current.count++;
+            }
+            size++;
+            modCount++;
+        }
+        return previous;
+    }
+
+    private void forEach(Node<V> node, StringBuilder key, EntryConsumer<? super String, ? super V> consumer) {
+        if (node.present) {
+            consumer.accept(key.toString(), node.value);
+        }
+        if (node.children != null) {
+            int length = key.length();
+            for (Node<V> child : node.children) {
+                if (child != null) {
+                    forEach(child, key.append(keyDelimiter).append(child.fragment), consumer);
+                    key.setLength(length);
+                }
+            }
+        }
+    }
+
+    private String keyOf(Node<V> node) {
+        return node.parent == root ? node.fragment : keyOf(node.parent) + keyDelimiter + node.fragment;
+    }
+
+    private void removeNode(Node<V> node) {
+        node.present = false;
+        node.value = null;
+        for (Node<V> current = node; current != null; current = current.parent) {
+            current.count--;
+        }
+        size--;
+        modCount++;
+        Node<V> current = node;
+        while (current.parent != null && !current.present && current.childCount == 0) {
+            current.parent.removeChild(current);
+            current = current.parent;
+        }
+    }
+
+    /**
+     * A key fragment of the trie. The children are stored in an open addressing table indexed by the hash of their
+     * key fragment. The count of the stored keys in the subtree of the node is maintained on every modification.
+     */
+    private static final class Node<E> {
+
+        private final String fragment;
+        private final Node<E> parent;
+        private final int hash;
+        private Node<E>[] children;
+        private int childCount;
+        private int count;
+        private E value;
+        private boolean present;
+
+        private Node(String fragment, Node<E> parent, int hash) {
+            this.fragment = fragment;
+            this.parent = parent;
+            this.hash = hash;
+        }
+
+        private Node<E> child(String key, int from, int to) {
+            if (children == null) {
+                return null;
+            }
+            int childHash = Keys.hash(key, from, to);
+            int mask = children.length - 1;
+            for (int i = Keys.spread(childHash) & mask;; i = (i + 1) & mask) {
+                Node<E> child = children[i];
+                if (child == null || child.hash == childHash && Keys.regionEquals(key, from, to, child.fragment)) {
+                    return child;
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Node<E> addChild(String childFragment) {
+            if (children == null) {
+                children = new Node[2];
+            } else if ((childCount + 1) * 2 > children.length) {
+                Node<E>[] previous = children;
+                children = new Node[previous.length * 2];
+                for (Node<E> child : previous) {
+                    if (child != null) {
+                        insert(child);
+                    }
+                }
+            }
+            Node<E> child = new Node<>(childFragment, this, childFragment.hashCode());
+            insert(child);
+            childCount++;
+            return child;
+        }
+
+        private void removeChild(Node<E> child) {
+            int mask = children.length - 1;
+            int i = Keys.spread(child.hash) & mask;
+            while (children[i] != child) {
+                i = (i + 1) & mask;
+            }
+            children[i] = null;
+            childCount--;
+            for (int j = (i + 1) & mask; children[j] != null; j = (j + 1) & mask) {
+                Node<E> moved = children[j];
+                children[j] = null;
+                insert(moved);
+            }
+        }
+
+        private void insert(Node<E> child) {
+            int mask = children.length - 1;
+            int i = Keys.spread(child.hash) & mask;
+            while (children[i] != null) {
+                i = (i + 1) & mask;
+            }
+            children[i] = child;
+        }
+    }
+
+    private class NodeEntry implements Entry<String, V> {
+
+        private final Node<V> node;
+
+        private NodeEntry(Node<V> node) {
+            this.node = node;
+        }
+
+        @Override
+        public String getKey() {
+            return keyOf(node);
+        }
+
+        @Override
+        public V getValue() {
+            return node.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = node.value;
+            node.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && (node.value == null ? other.getValue() == null
+                    : node.value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ (node.value == null ? 0 : node.value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + node.value;
+        }
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            TrieKeyStorage.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, V>> {
+
+        private final Deque<Node<V>> stack = new ArrayDeque<>();
+        private Node<V> next;
+        private Node<V> lastReturned;
+        private int expectedModCount = modCount;
+
+        private EntryIterator() {
+            pushChildren(root);
+            advance();
+        }
+
+        private EntryIterator(Node<V> subtree) {
+            stack.push(subtree);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            advance();
+            return new NodeEntry(lastReturned);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeNode(lastReturned);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !stack.isEmpty()) {
+                Node<V> node = stack.pop();
+                pushChildren(node);
+                if (node.present) {
+                    next = node;
+                }
+            }
+        }
+
+        private void pushChildren(Node<V> node) {
+            if (node.children != null) {
+                for (Node<V> child : node.children) {
+                    if (child != null) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Converts the elements of a {@link MappedComplexStringKeyMap} to bytes and back.
+ * <p>
+ * @author Balazs Berkes
+ * @param <V> type of the element
+ */
+public interface ValueCodec<V> {
+
+    /**
+     * Codec of {@code String} elements as UTF-8 bytes.
+     */
+    ValueCodec<String> UTF8 = new ValueCodec<String>() {
+        private final Charset utf8 = Charset.forName("UTF-8");
+
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(utf8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return utf8.decode(buffer).toString();
+        }
+    };
+
+    /**
+     * @param value the element, never {@code null}
+     * @return the bytes of the element
+     */
+    byte[] encode(V value);
+
+    /**
+     * @param buffer the bytes of the element from its position to its limit. The buffer is read-only and owned by the
+     * codec, it can be consumed.
+     * @return the element
+     */
+    V decode(ByteBuffer buffer);
+}
@@ -15,15 +15,53 @@
  */
 package org.github.aenygmatic.utilities.concurrent;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Barrier object which organized threads to groups and allows only one thread
  * to run of the same group.
+ * <p>
+ * A group can be held in {@link LockMode#SHARED} mode as well, then the shared
+ * members of the same group run at the same time and only the exclusive
+ * members are serialized. The waiting members are granted in arrival order,
+ * so a stream of shared members can not starve an exclusive one.
+ * <p>
+ * The barrier is thread safe without a global monitor: the state of each group
+ * is kept in a {@link ConcurrentMap} and guarded by its own monitor, so threads
+ * of different groups never contend with each other. The members waiting for a
+ * group are queued as {@link GroupPermit}s, which allows to acquire a group
+ * asynchronously with {@link #acquireGroup(Object)} without parking a thread.
+ * <p>
+ * The contention of the groups can be measured with
+ * {@link #setMetricsEnabled(boolean)}. Recording uses striped counters and
+ * does not allocate, so it can be left enabled in production.
+ * <p>
+ * The number of waiting members can be limited per group and for the whole
+ * barrier. A member exceeding the limits is rejected immediately according
+ * to the {@link OverloadPolicy}, so an overloaded group fails fast instead of
+ * queuing into timeouts.
+ * <p>
+ * The groups can be leased for a limited time with
+ * {@link #setMaxHoldTime(long, TimeUnit)}. A sweeper started with
+ * {@link #startSweeper(ScheduledExecutorService, long, TimeUnit)} takes the
+ * group away from the holders exceeding their lease and from the asynchronous
+ * waiters exceeding the default timeout, so a member which never releases its
+ * group can not keep the group and its state alive forever.
  *
  * @param <T> the type of the object which is used for grouping threads
  * ({@link Object#equals(Object)} is used).
@@ -32,12 +70,20 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class GroupBarrier<T> {
 
-    private final Map<T, ReentrantLock> groupLocks = new HashMap<>();
-    private final Map<T, Integer> groupMemberCount = new HashMap<>();
+    private static final Comparator<GroupStatistics<?>> BY_CONTENTION = new ContentionComparator();
+
+    private final ConcurrentMap<T, Group<T>> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
 
     private final int timeout;
     private final TimeUnit timeUnit;
 
+    private volatile Metrics metrics;
+    private volatile int maxWaitersPerGroup = Integer.MAX_VALUE;
+    private volatile int maxWaiters = Integer.MAX_VALUE;
+    private volatile OverloadPolicy overloadPolicy = OverloadPolicy.REJECT_NEWEST;
+    private volatile long maxHoldNanos;
+
     public GroupBarrier() {
         this(60, TimeUnit.SECONDS);
     }
@@ -58,11 +104,122 @@ public class GroupBarrier<T> {
      * @param groupId object which is used for grouping threads. This key will
      * identify which group the thread should queue up to.
      * @return {@code true} if the thread could get the lock in the default
-     * timeout, otherwise {@code false}
+     * timeout, otherwise {@code false} (also when the thread is rejected by the
+     * waiter limits)
      */
     public boolean tryAndAwaitGroup(T groupId) {
-        Lock lock = getLock(groupId);
-        return interruptableWait(lock);
+        return tryAndAwaitGroup(groupId, LockMode.EXCLUSIVE);
+    }
+
+    /**
+     * Locks the current group in the given mode and await the lock to be
+     * released when it's held by an other thread in an incompatible mode. The
+     * lock is reentrant when the thread already holds the group in a mode
+     * which includes the requested one, upgrading a shared lock to exclusive
+     * is not supported.
+     *
+     * @param groupId object which is used for grouping threads. This key will
+     * identify which group the thread should queue up to.
+     * @param mode the mode to hold the group in
+     * @return {@code true} if the thread could get the lock in the default
+     * timeout, otherwise {@code false}
+     */
+    public boolean tryAndAwaitGroup(T groupId, LockMode mode) {
+        return tryAndAwaitGroup(groupId, mode, timeout, timeUnit);
+    }
+
+    /**
+     * Locks the current group in the given mode and await the lock at most the
+     * given time instead of the default timeout.
+     *
+     * @param groupId object which is used for grouping threads. This key will
+     * identify which group the thread should queue up to.
+     * @param mode the mode to hold the group in
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return {@code true} if the thread could get the lock in the given
+     * timeout, otherwise {@code false}
+     * @see #tryAndAwaitGroup(Object, LockMode)
+     */
+    public boolean tryAndAwaitGroup(T groupId, LockMode mode, long timeout, TimeUnit unit) {
+        GroupPermit<T> permit = enter(groupId, mode, Thread.currentThread(), true);
+        return permit.await(timeout, unit);
+    }
+
+    /**
+     * Locks all the given groups exclusively or none of them.
+     *
+     * @param groupIds objects which are used for grouping threads
+     * @return {@code true} if the thread could get all the locks in the
+     * default timeout, otherwise {@code false}
+     * @see #tryAndAwaitGroups(Collection, LockMode, long, TimeUnit)
+     */
+    public boolean tryAndAwaitGroups(Collection<? extends T> groupIds) {
+        return tryAndAwaitGroups(groupIds, LockMode.EXCLUSIVE, timeout, timeUnit);
+    }
+
+    /**
+     * Locks all the given groups or none of them. The thread waits only for
+     * one contended group at a time, while holding it the others are tried
+     * without waiting. When any of them is not available every lock is
+     * released and the thread waits for that group instead, so threads locking
+     * overlapping sets of groups in different order can not deadlock. The
+     * timeout is shared by the whole set.
+     *
+     * @param groupIds objects which are used for grouping threads
+     * @param mode the mode to hold the groups in
+     * @param timeout the maximum time to wait for all the groups
+     * @param unit the unit of the timeout
+     * @return {@code true} if the thread could get all the locks in the given
+     * timeout, otherwise {@code false}
+     */
+    public boolean tryAndAwaitGroups(Collection<? extends T> groupIds, LockMode mode, long timeout, TimeUnit unit) {
+        List<T> members = new ArrayList<>(new LinkedHashSet<>(groupIds));
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int contended = 0;
+        while (!members.isEmpty()) {
+            long remaining = deadline - System.nanoTime();
+            if (!tryAndAwaitGroup(members.get(contended), mode, remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            int failed = tryOtherGroups(members, contended, mode);
+            if (failed < 0) {
+                break;
+            }
+            unlockGroup(members.get(contended));
+            contended = failed;
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Queues up for the group without blocking the current thread. The
+     * returned permit is completed when the group is granted to it, after that
+     * the group has to be released with {@link GroupPermit#release()}. A
+     * pending permit can be cancelled to leave the queue. A permit rejected by
+     * the waiter limits is completed with {@code false}.
+     *
+     * @param groupId object which is used for grouping threads. This key will
+     * identify which group the permit should queue up to.
+     * @return permit of the group which is completed when the group is granted
+     */
+    public GroupPermit<T> acquireGroup(T groupId) {
+        return acquireGroup(groupId, LockMode.EXCLUSIVE);
+    }
+
+    /**
+     * Queues up for the group in the given mode without blocking the current
+     * thread.
+     *
+     * @param groupId object which is used for grouping threads. This key will
+     * identify which group the permit should queue up to.
+     * @param mode the mode to hold the group in
+     * @return permit of the group which is completed when the group is granted
+     * @see #acquireGroup(Object)
+     */
+    public GroupPermit<T> acquireGroup(T groupId, LockMode mode) {
+        return enter(groupId, mode, null, true);
     }
 
     /**
@@ -73,57 +230,481 @@ public class GroupBarrier<T> {
      * @param groupId object which is used for grouping threads. This key will
      * identify which group the thread should queue up to.
      */
-    public synchronized void unlockGroup(T groupId) {
-        ReentrantLock lock;
-        lock = groupLocks.get(groupId);
-        if (lock.isHeldByCurrentThread()) {
-            lock.unlock();
+    public void unlockGroup(T groupId) {
+        Group<T> group = groups.get(groupId);
+        if (group != null) {
+            List<GroupPermit<T>> granted;
+            synchronized (group) {
+                GroupPermit<T> holder = group.heldBy(Thread.currentThread());
+                if (holder == null || --holder.holds > 0) {
+                    return;
+                }
+                granted = releaseHolder(group, holder);
+            }
+            complete(granted);
+        }
+    }
+
+    /**
+     * Unlocks all the given groups locked by
+     * {@link #tryAndAwaitGroups(Collection)}.
+     *
+     * @param groupIds objects which are used for grouping threads
+     */
+    public void unlockGroups(Collection<? extends T> groupIds) {
+        for (T groupId : new LinkedHashSet<>(groupIds)) {
+            unlockGroup(groupId);
         }
-        cleanUpIfNoThreadsAreWaiting(groupId);
     }
 
-    private synchronized Lock getLock(T groupIdentifier) {
-        incrementGroupMembers(groupIdentifier);
-        return receiveLock(groupIdentifier);
+    /**
+     * Limits the number of members waiting for the same group.
+     *
+     * @param maxWaitersPerGroup the maximum number of waiting members of a
+     * group, {@code 0} means the group is only granted when it's free
+     */
+    public void setMaxWaitersPerGroup(int maxWaitersPerGroup) {
+        this.maxWaitersPerGroup = maxWaitersPerGroup;
+    }
+
+    /**
+     * Limits the number of members waiting for any group of the barrier.
+     *
+     * @param maxWaiters the maximum number of waiting members
+     */
+    public void setMaxWaiters(int maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * @param overloadPolicy decides which member is rejected when the waiter
+     * limits are exceeded, by default the new member is rejected
+     */
+    public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+        this.overloadPolicy = overloadPolicy;
+    }
+
+    /**
+     * Leases the groups for a limited time. A holder exceeding the lease loses
+     * the group at the next sweep, its later release has no effect.
+     *
+     * @param maxHoldTime the maximum time to hold a group, {@code 0} means no
+     * limit
+     * @param unit the unit of the time
+     */
+    public void setMaxHoldTime(long maxHoldTime, TimeUnit unit) {
+        this.maxHoldNanos = unit.toNanos(maxHoldTime);
+    }
+
+    /**
+     * Schedules the periodic {@link #sweep()} of the barrier.
+     *
+     * @param scheduler the scheduler to run the sweeps on
+     * @param period the time between two sweeps
+     * @param unit the unit of the period
+     * @return the scheduled sweeper which can be cancelled
+     */
+    public ScheduledFuture<?> startSweeper(ScheduledExecutorService scheduler, long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                sweep();
+            }
+        }, period, period, unit);
     }
 
-    private boolean interruptableWait(Lock lock) {
-        boolean available = false;
-        try {
-            available = lock.tryLock(timeout, timeUnit);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+    /**
+     * Takes the groups away from the holders exceeding their lease and removes
+     * the asynchronous waiters exceeding the default timeout from the queues.
+     * The expired permits are not granted anymore, the waiting ones are
+     * completed with {@code false}. The state of the groups left without
+     * members is cleaned up.
+     *
+     * @return the number of expired members
+     */
+    public int sweep() {
+        int expired = 0;
+        for (Group<T> group : groups.values()) {
+            List<GroupPermit<T>> completed = new ArrayList<>();
+            synchronized (group) {
+                long now = System.nanoTime();
+                expired += expireHolders(group, now) + expireWaiters(group, now, completed);
+                completed.addAll(grantWaiters(group));
+                cleanUpIfNoThreadsAreWaiting(group);
+            }
+            complete(completed);
         }
-        return available;
+        recordExpirations(expired);
+        return expired;
+    }
+
+    /**
+     * Enables or disables the recording of contention metrics. Enabling the
+     * metrics again starts the aggregated statistics from zero.
+     *
+     * @param enabled {@code true} to record the metrics
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        metrics = enabled ? new Metrics() : null;
     }
 
-    private Lock receiveLock(T groupId) {
-        ReentrantLock lock = groupLocks.get(groupId);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            groupLocks.put(groupId, lock);
+    /**
+     * Takes a snapshot of the contention of the barrier. The aggregated
+     * statistics are empty when the metrics are not enabled.
+     *
+     * @param hottestGroups the number of the most contended groups to report
+     * @return snapshot of the statistics
+     */
+    public GroupBarrierStatistics<T> getStatistics(int hottestGroups) {
+        Metrics current = metrics == null ? new Metrics() : metrics;
+        PriorityQueue<GroupStatistics<T>> hottest = new PriorityQueue<>(hottestGroups + 1, BY_CONTENTION);
+        int activeGroups = 0;
+        int queueDepth = 0;
+        for (Group<T> group : groups.values()) {
+            GroupStatistics<T> statistics = group.statistics();
+            activeGroups++;
+            queueDepth += statistics.getQueueDepth();
+            hottest.add(statistics);
+            if (hottest.size() > hottestGroups) {
+                hottest.poll();
+            }
+        }
+        List<GroupStatistics<T>> ranked = new ArrayList<>(hottest);
+        Collections.sort(ranked, Collections.reverseOrder(BY_CONTENTION));
+        return new GroupBarrierStatistics<>(current.acquireLatency.snapshot(), current.holdTime.snapshot(),
+                current.timeouts.sum(), current.rejections.sum(), current.expirations.sum(), activeGroups, queueDepth,
+                ranked);
+    }
+
+    int activeGroups() {
+        return groups.size();
+    }
+
+    boolean release(GroupPermit<T> permit) {
+        Group<T> group = permit.getGroup();
+        List<GroupPermit<T>> granted;
+        synchronized (group) {
+            if (!permit.isGranted()) {
+                return false;
+            }
+            granted = releaseHolder(group, permit);
+        }
+        complete(granted);
+        return true;
+    }
+
+    boolean cancel(GroupPermit<T> permit, boolean timedOut) {
+        Group<T> group = permit.getGroup();
+        List<GroupPermit<T>> granted;
+        synchronized (group) {
+            if (!permit.isPending()) {
+                return false;
+            }
+            group.waiters.remove(permit);
+            waiting.decrementAndGet();
+            permit.setState(GroupPermit.State.CANCELLED);
+            if (timedOut) {
+                recordTimeout(group);
+            }
+            granted = grantWaiters(group);
+            cleanUpIfNoThreadsAreWaiting(group);
+        }
+        permit.complete();
+        complete(granted);
+        return true;
+    }
+
+    private int tryOtherGroups(List<T> members, int locked, LockMode mode) {
+        for (int i = 0; i < members.size(); i++) {
+            if (i != locked && enter(members.get(i), mode, Thread.currentThread(), false) == null) {
+                for (int j = 0; j < i; j++) {
+                    if (j != locked) {
+                        unlockGroup(members.get(j));
+                    }
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private GroupPermit<T> enter(T groupId, LockMode mode, Thread owner, boolean queue) {
+        GroupPermit<T> permit;
+        GroupPermit<T> rejected = null;
+        List<GroupPermit<T>> unblocked = Collections.emptyList();
+        boolean granted;
+        for (;;) {
+            Group<T> group = receiveGroup(groupId);
+            synchronized (group) {
+                if (group.retired) {
+                    continue;
+                }
+                GroupPermit<T> held = owner == null ? null : group.heldBy(owner);
+                if (held != null && held.getMode().includes(mode)) {
+                    held.holds++;
+                    return held;
+                }
+                granted = group.waiters.isEmpty() && group.admits(mode);
+                if (!granted && !queue) {
+                    cleanUpIfNoThreadsAreWaiting(group);
+                    return null;
+                }
+                permit = new GroupPermit<>(this, group, mode, owner);
+                if (metrics != null) {
+                    permit.enqueuedAt = System.nanoTime();
+                }
+                if (owner == null && !granted) {
+                    permit.expiresAt = System.nanoTime() + timeUnit.toNanos(timeout);
+                }
+                if (granted) {
+                    grant(group, permit);
+                } else {
+                    rejected = enqueue(group, permit);
+                    if (rejected != permit) {
+                        unblocked = grantWaiters(group);
+                    }
+                }
+                break;
+            }
+        }
+        complete(granted ? permit : rejected);
+        complete(unblocked);
+        return permit;
+    }
+
+    private GroupPermit<T> enqueue(Group<T> group, GroupPermit<T> permit) {
+        if (group.waiters.size() < maxWaitersPerGroup && reserveWaiter()) {
+            group.waiters.add(permit);
+            return null;
+        }
+        GroupPermit<T> rejected = permit;
+        if (overloadPolicy == OverloadPolicy.REJECT_OLDEST && !group.waiters.isEmpty()) {
+            rejected = group.waiters.poll();
+            group.waiters.add(permit);
+        }
+        rejected.setState(GroupPermit.State.REJECTED);
+        recordRejection(group);
+        return rejected;
+    }
+
+    private boolean reserveWaiter() {
+        int current;
+        do {
+            current = waiting.get();
+            if (current >= maxWaiters) {
+                return false;
+            }
+        } while (!waiting.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private Group<T> receiveGroup(T groupId) {
+        Group<T> group = groups.get(groupId);
+        if (group == null) {
+            Group<T> created = new Group<>(groupId);
+            group = groups.putIfAbsent(groupId, created);
+            if (group == null) {
+                group = created;
+            }
+        }
+        return group;
+    }
+
+    private List<GroupPermit<T>> releaseHolder(Group<T> group, GroupPermit<T> permit) {
+        removeHolder(group, permit, GroupPermit.State.RELEASED);
+        List<GroupPermit<T>> next = grantWaiters(group);
+        cleanUpIfNoThreadsAreWaiting(group);
+        return next;
+    }
+
+    private void removeHolder(Group<T> group, GroupPermit<T> permit, GroupPermit.State state) {
+        recordRelease(group, permit);
+        permit.setState(state);
+        group.holders.remove(permit);
+        group.granted[permit.getMode().ordinal()]--;
+    }
+
+    private int expireHolders(Group<T> group, long now) {
+        int expired = 0;
+        for (GroupPermit<T> holder : new ArrayList<>(group.holders)) {
+            if (holder.isExpiredAt(now)) {
+                removeHolder(group, holder, GroupPermit.State.EXPIRED);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private int expireWaiters(Group<T> group, long now, List<GroupPermit<T>> completed) {
+        int expired = 0;
+        for (Iterator<GroupPermit<T>> waiters = group.waiters.iterator(); waiters.hasNext();) {
+            GroupPermit<T> waiter = waiters.next();
+            if (waiter.isExpiredAt(now)) {
+                waiters.remove();
+                waiting.decrementAndGet();
+                waiter.setState(GroupPermit.State.EXPIRED);
+                completed.add(waiter);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private List<GroupPermit<T>> grantWaiters(Group<T> group) {
+        List<GroupPermit<T>> next = Collections.emptyList();
+        while (!group.waiters.isEmpty() && group.admits(group.waiters.peek().getMode())) {
+            GroupPermit<T> permit = group.waiters.poll();
+            waiting.decrementAndGet();
+            grant(group, permit);
+            if (next.isEmpty()) {
+                next = new ArrayList<>();
+            }
+            next.add(permit);
+        }
+        return next;
+    }
+
+    private void grant(Group<T> group, GroupPermit<T> permit) {
+        recordGrant(group, permit);
+        long lease = maxHoldNanos;
+        permit.expiresAt = lease > 0 ? System.nanoTime() + lease : 0;
+        permit.setState(GroupPermit.State.GRANTED);
+        permit.holds = 1;
+        group.holders.add(permit);
+        group.granted[permit.getMode().ordinal()]++;
+    }
+
+    private void recordGrant(Group<T> group, GroupPermit<T> permit) {
+        Metrics current = metrics;
+        if (current != null && permit.enqueuedAt != 0) {
+            long now = System.nanoTime();
+            long wait = now - permit.enqueuedAt;
+            current.acquireLatency.record(wait);
+            group.acquisitions++;
+            group.totalWaitNanos += wait;
+            group.maxWaitNanos = Math.max(group.maxWaitNanos, wait);
+            permit.grantedAt = now;
+        }
+    }
+
+    private void recordRelease(Group<T> group, GroupPermit<T> permit) {
+        Metrics current = metrics;
+        if (current != null && permit.grantedAt != 0) {
+            long hold = System.nanoTime() - permit.grantedAt;
+            current.holdTime.record(hold);
+            group.totalHoldNanos += hold;
+        }
+    }
+
+    private void recordRejection(Group<T> group) {
+        Metrics current = metrics;
+        if (current != null) {
+            current.rejections.increment();
+            group.rejections++;
+        }
+    }
+
+    private void recordExpirations(int expired) {
+        Metrics current = metrics;
+        if (current != null && expired > 0) {
+            current.expirations.add(expired);
+        }
+    }
+
+    private void recordTimeout(Group<T> group) {
+        Metrics current = metrics;
+        if (current != null) {
+            current.timeouts.increment();
+            group.timeouts++;
+        }
+    }
+
+    private void complete(GroupPermit<T> granted) {
+        if (granted != null) {
+            granted.complete();
+        }
+    }
+
+    private void complete(List<GroupPermit<T>> granted) {
+        for (GroupPermit<T> permit : granted) {
+            permit.complete();
+        }
+    }
+
+    private void cleanUpIfNoThreadsAreWaiting(Group<T> group) {
+        if (group.holders.isEmpty() && group.waiters.isEmpty()) {
+            group.retired = true;
+            groups.remove(group.id, group);
         }
-        return lock;
     }
 
-    private void incrementGroupMembers(T groupId) {
-        Integer current = groupMemberCount.get(groupId);
-        if (current == null) {
-            current = 1;
-        } else {
-            current++;
+    /**
+     * State of one group, guarded by its own monitor. A group without holders
+     * and waiters is retired and can not be entered again, the next member of
+     * the same group id will create a new one.
+     */
+    static final class Group<T> {
+
+        private final T id;
+        private final Deque<GroupPermit<T>> waiters = new ArrayDeque<>();
+        private final List<GroupPermit<T>> holders = new ArrayList<>(1);
+        private final int[] granted = new int[LockMode.MODES.length];
+        private boolean retired;
+
+        private long acquisitions;
+        private long timeouts;
+        private long rejections;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        private long totalHoldNanos;
+
+        private Group(T id) {
+            this.id = id;
+        }
+
+        private boolean admits(LockMode mode) {
+            for (LockMode held : LockMode.MODES) {
+                if (granted[held.ordinal()] > 0 && !mode.isCompatibleWith(held)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private GroupPermit<T> heldBy(Thread owner) {
+            for (GroupPermit<T> holder : holders) {
+                if (holder.getOwner() == owner) {
+                    return holder;
+                }
+            }
+            return null;
+        }
+
+        private synchronized GroupStatistics<T> statistics() {
+            return new GroupStatistics<>(id, waiters.size(), acquisitions, timeouts, rejections, totalWaitNanos,
+                    maxWaitNanos, totalHoldNanos);
         }
-        groupMemberCount.put(groupId, current);
     }
 
-    private void cleanUpIfNoThreadsAreWaiting(T groupIdentifier) {
-        Integer members = groupMemberCount.get(groupIdentifier);
-        members--;
-        if (members == 0) {
-            groupLocks.remove(groupIdentifier);
-            groupMemberCount.remove(groupIdentifier);
-        } else {
-            groupMemberCount.put(groupIdentifier, members);
+    private static class Metrics {
+
+        private final StripedHistogram acquireLatency = new StripedHistogram();
+        private final StripedHistogram holdTime = new StripedHistogram();
+        private final StripedCounter timeouts = new StripedCounter();
+        private final StripedCounter rejections = new StripedCounter();
+        private final StripedCounter expirations = new StripedCounter();
+    }
+
+    private static class ContentionComparator implements Comparator<GroupStatistics<?>> {
+
+        @Override
+        public int compare(GroupStatistics<?> o1, GroupStatistics<?> o2) {
+            int result = Integer.compare(o1.getQueueDepth(), o2.getQueueDepth());
+            if (result == 0) {
+                result = Long.compare(o1.getTotalWait(TimeUnit.NANOSECONDS), o2.getTotalWait(TimeUnit.NANOSECONDS));
+            }
+            return result;
         }
     }
 }
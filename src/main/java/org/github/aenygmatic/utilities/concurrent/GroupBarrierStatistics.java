@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.List;
+
+/**
+ * Snapshot of the aggregated contention of a {@link GroupBarrier} since its metrics were enabled.
+ * <p>
+ * @author Balazs Berkes
+ * @param <T> the type of the object which is used for grouping
+ */
+public class GroupBarrierStatistics<T> {
+
+    private final LatencyHistogram acquireLatency;
+    private final LatencyHistogram holdTime;
+    private final long timeouts;
+    private final long rejections;
+    private final long expirations;
+    private final int activeGroups;
+    private final int queueDepth;
+    private final List<GroupStatistics<T>> hottestGroups;
+
+    GroupBarrierStatistics(LatencyHistogram acquireLatency, LatencyHistogram holdTime, long timeouts,
+            long rejections, long expirations, int activeGroups, int queueDepth, List<GroupStatistics<T>> hottestGroups) {
+        this.acquireLatency = acquireLatency;
+        this.holdTime = holdTime;
+        this.timeouts = timeouts;
+        this.rejections = rejections;
+        this.expirations = expirations;
+        this.activeGroups = activeGroups;
+        this.queueDepth = queueDepth;
+        this.hottestGroups = hottestGroups;
+    }
+
+    /**
+     * @return the time members waited until the group was granted to them
+     */
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    /**
+     * @return the time between granting and releasing the groups
+     */
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * @return the number of members which gave up waiting for their group
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the number of members rejected by the waiter limits
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return the number of holders and waiters expired by the sweeps
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public int getActiveGroups() {
+        return activeGroups;
+    }
+
+    /**
+     * @return the number of members waiting for any group
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the most contended active groups, the longest queue first
+     */
+    public List<GroupStatistics<T>> getHottestGroups() {
+        return hottestGroups;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle of a member queued up for a group of a {@link GroupBarrier}. The permit is completed when the group is
+ * granted to it, until then it's only an element in the queue of the group and no thread has to wait for it.
+ * <p>
+ * The result of the permit is {@code true} when the group was granted and {@code false} when the permit was rejected
+ * by the waiter limits of the barrier or expired while waiting. A granted permit has to be released with
+ * {@link #release()} to let the next member of the group run.
+ * <pre>
+ * GroupPermit&lt;String&gt; permit = barrier.acquireGroup("customer");
+ * permit.addListener(new Runnable() {
+ *     public void run() {
+ *         try {
+ *             // Do something exclusively for the customer
+ *         } finally {
+ *             permit.release();
+ *         }
+ *     }
+ * }, executor);
+ * </pre>
+ *
+ * @param <T> the type of the object which is used for grouping
+ *
+ * @author Balazs Berkes
+ */
+public class GroupPermit<T> implements Future<Boolean> {
+
+    private final GroupBarrier<T> barrier;
+    private final GroupBarrier.Group<T> group;
+    private final LockMode mode;
+    private final Thread owner;
+    private final CountDownLatch completion = new CountDownLatch(1);
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private volatile State state = State.PENDING;
+    int holds;
+    long enqueuedAt;
+    long grantedAt;
+    long expiresAt;
+    private volatile boolean admitted;
+
+    GroupPermit(GroupBarrier<T> barrier, GroupBarrier.Group<T> group, LockMode mode, Thread owner) {
+        this.barrier = barrier;
+        this.group = group;
+        this.mode = mode;
+        this.owner = owner;
+    }
+
+    /**
+     * Releases the group when it's granted to this permit or leaves the queue of the group when it's still pending.
+     */
+    public void release() {
+        if (!barrier.release(this)) {
+            barrier.cancel(this, false);
+        }
+    }
+
+    /**
+     * Registers a listener which is executed on the given executor when the permit is completed. When the permit is
+     * already completed the listener is executed immediately.
+     * <p>
+     * The listener is handed to the executor by the thread which completes the permit, usually a thread releasing the
+     * group. An exception thrown by the executor, e.g. a {@link java.util.concurrent.RejectedExecutionException}, is
+     * passed to the uncaught exception handler of that thread instead of being thrown to it.
+     *
+     * @param listener the listener to run
+     * @param executor the executor to run the listener with
+     */
+    public void addListener(Runnable listener, Executor executor) {
+        synchronized (listeners) {
+            if (!isDone()) {
+                listeners.add(new Listener(listener, executor));
+                return;
+            }
+        }
+        new Listener(listener, executor).dispatch();
+    }
+
+    /**
+     * @return the mode the permit holds the group in
+     */
+    public LockMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return {@code true} if the group is currently granted to this permit
+     */
+    public boolean isGranted() {
+        return state == State.GRANTED;
+    }
+
+    /**
+     * @return {@code true} if the group was taken away from the permit because its lease or its waiting time expired
+     */
+    public boolean isExpired() {
+        return state == State.EXPIRED;
+    }
+
+    /**
+     * @return {@code true} if the permit was rejected by the waiter limits of the barrier
+     */
+    public boolean isRejected() {
+        return state == State.REJECTED;
+    }
+
+    /**
+     * Removes the permit from the queue of the group if the group is not yet granted to it.
+     *
+     * @param mayInterruptIfRunning ignored, no thread is waiting for a pending permit
+     * @return {@code true} if the permit was pending and it's removed from the queue
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return barrier.cancel(this, false);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == State.CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return completion.getCount() == 0;
+    }
+
+    @Override
+    public Boolean get() throws InterruptedException {
+        completion.await();
+        return result();
+    }
+
+    @Override
+    public Boolean get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!completion.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    boolean await(long timeout, TimeUnit unit) {
+        try {
+            if (!completion.await(timeout, unit)) {
+                barrier.cancel(this, true);
+            }
+        } catch (InterruptedException e) {
+            cancel(false);
+            Thread.currentThread().interrupt();
+        }
+        return isGranted();
+    }
+
+    Thread getOwner() {
+        return owner;
+    }
+
+    GroupBarrier.Group<T> getGroup() {
+        return group;
+    }
+
+    boolean isPending() {
+        return state == State.PENDING;
+    }
+
+    void setState(State state) {
+        if (state == State.GRANTED) {
+            admitted = true;
+        }
+        this.state = state;
+    }
+
+    boolean isExpiredAt(long now) {
+        return expiresAt != 0 && now - expiresAt >= 0;
+    }
+
+    void complete() {
+        List<Listener> toRun;
+        synchronized (listeners) {
+            completion.countDown();
+            toRun = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        for (Listener listener : toRun) {
+            listener.dispatch();
+        }
+    }
+
+    private Boolean result() {
+        if (state == State.CANCELLED) {
+            throw new CancellationException();
+        }
+        return admitted;
+    }
+
+    enum State {
+
+        PENDING, GRANTED, RELEASED, CANCELLED, REJECTED, EXPIRED
+    }
+
+    private static class Listener {
+
+        private final Runnable runnable;
+        private final Executor executor;
+
+        private Listener(Runnable runnable, Executor executor) {
+            this.runnable = runnable;
+            this.executor = executor;
+        }
+
+        private void dispatch() {
+            try {
+                executor.execute(runnable);
+            } catch (RuntimeException e) {
+                Thread current = Thread.currentThread();
+                current.getUncaughtExceptionHandler().uncaughtException(current, e);
+            }
+        }
+    }
+}
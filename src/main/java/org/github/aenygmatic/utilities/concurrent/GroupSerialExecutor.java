@@ -0,0 +1,211 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executes tasks of the same group one at a time in the order of submission while tasks of different groups run in
+ * parallel on the given executor. The groups are acquired through a {@link GroupBarrier}, so the tasks are serialized
+ * with every other member of the barrier as well.
+ * <p>
+ * The tasks of a group are executed in batches: when the group is granted all the tasks queued for the group so far
+ * are run in the same turn, without handing the group over between them. When the barrier rejects the turn of a group
+ * because of its waiter limits, or the executor rejects running the turn, the tasks of the turn are dropped and
+ * reported as a {@link RejectedExecutionException} to the uncaught exception handler. The group is released in both
+ * cases, so the later tasks of the group are executed again.
+ * <pre>
+ * GroupSerialExecutor&lt;String&gt; serial = new GroupSerialExecutor&lt;&gt;(executor);
+ * serial.execute("customer", new Runnable() {
+ *     public void run() {
+ *         // Do something exclusively for the customer
+ *     }
+ * });
+ * </pre>
+ *
+ * @param <T> the type of the object which is used for grouping tasks ({@link Object#equals(Object)} is used).
+ *
+ * @author Balazs Berkes
+ */
+public class GroupSerialExecutor<T> {
+
+    private static final Executor SAME_THREAD = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final ConcurrentMap<T, TaskQueue> queues = new ConcurrentHashMap<>();
+    private final GroupBarrier<T> barrier;
+    private final Executor executor;
+
+    public GroupSerialExecutor(Executor executor) {
+        this(new GroupBarrier<T>(), executor);
+    }
+
+    public GroupSerialExecutor(GroupBarrier<T> barrier, Executor executor) {
+        this.barrier = barrier;
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the task to the group. The task will run after every task submitted earlier to the same group.
+     * <p>
+     * An exception or error thrown by the task is passed to the uncaught exception handler of the executing thread and
+     * does not stop the execution of the remaining tasks of the group.
+     *
+     * @param groupId object which is used for grouping tasks
+     * @param task the task to execute
+     */
+    public void execute(T groupId, Runnable task) {
+        for (;;) {
+            TaskQueue queue = receiveQueue(groupId);
+            boolean schedule;
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                queue.tasks.add(task);
+                schedule = !queue.scheduled;
+                queue.scheduled = true;
+            }
+            if (schedule) {
+                schedule(queue);
+            }
+            return;
+        }
+    }
+
+    private TaskQueue receiveQueue(T groupId) {
+        TaskQueue queue = queues.get(groupId);
+        if (queue == null) {
+            TaskQueue created = new TaskQueue(groupId);
+            queue = queues.putIfAbsent(groupId, created);
+            if (queue == null) {
+                queue = created;
+            }
+        }
+        return queue;
+    }
+
+    private void schedule(TaskQueue queue) {
+        GroupPermit<T> permit = barrier.acquireGroup(queue.groupId);
+        final Drain drain = new Drain(queue, permit);
+        permit.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    executor.execute(drain);
+                } catch (RejectedExecutionException e) {
+                    drain.reject(e);
+                }
+            }
+        }, SAME_THREAD);
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable e) {
+            reportFailure(e);
+        }
+    }
+
+    private static void reportFailure(Throwable e) {
+        Thread current = Thread.currentThread();
+        current.getUncaughtExceptionHandler().uncaughtException(current, e);
+    }
+
+    private class TaskQueue {
+
+        private final T groupId;
+        private Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+        private boolean retired;
+
+        private TaskQueue(T groupId) {
+            this.groupId = groupId;
+        }
+
+        private synchronized Deque<Runnable> takeBatch() {
+            Deque<Runnable> batch = tasks;
+            tasks = new ArrayDeque<>();
+            return batch;
+        }
+
+        private synchronized boolean finishTurn() {
+            if (tasks.isEmpty()) {
+                scheduled = false;
+                retired = true;
+                queues.remove(groupId, this);
+            }
+            return scheduled;
+        }
+    }
+
+    private class Drain implements Runnable {
+
+        private final TaskQueue queue;
+        private final GroupPermit<T> permit;
+
+        private Drain(TaskQueue queue, GroupPermit<T> permit) {
+            this.queue = queue;
+            this.permit = permit;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Deque<Runnable> batch = queue.takeBatch();
+                if (permit.isGranted()) {
+                    for (Runnable task : batch) {
+                        runSafely(task);
+                    }
+                } else {
+                    reportFailure(new RejectedExecutionException(batch.size() + " tasks of group " + queue.groupId
+                            + " are rejected by the overloaded barrier"));
+                }
+            } finally {
+                finishTurn();
+            }
+        }
+
+        private void reject(RejectedExecutionException cause) {
+            try {
+                Deque<Runnable> batch = queue.takeBatch();
+                reportFailure(new RejectedExecutionException(batch.size() + " tasks of group " + queue.groupId
+                        + " are rejected by the executor", cause));
+            } finally {
+                finishTurn();
+            }
+        }
+
+        private void finishTurn() {
+            permit.release();
+            if (queue.finishTurn()) {
+                schedule(queue);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of the contention of one active group of a {@link GroupBarrier}. The statistics of a group are kept only
+ * while the group has members, they are cleaned up together with the group.
+ * <p>
+ * @author Balazs Berkes
+ * @param <T> the type of the object which is used for grouping
+ */
+public class GroupStatistics<T> {
+
+    private final T groupId;
+    private final int queueDepth;
+    private final long acquisitions;
+    private final long timeouts;
+    private final long rejections;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long totalHoldNanos;
+
+    GroupStatistics(T groupId, int queueDepth, long acquisitions, long timeouts, long rejections,
+            long totalWaitNanos, long maxWaitNanos, long totalHoldNanos) {
+        this.groupId = groupId;
+        this.queueDepth = queueDepth;
+        this.acquisitions = acquisitions;
+        this.timeouts = timeouts;
+        this.rejections = rejections;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.totalHoldNanos = totalHoldNanos;
+    }
+
+    public T getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * @return the number of members waiting for the group
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the number of times the group was granted
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * @return the number of members which gave up waiting for the group
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return the number of members rejected by the waiter limits
+     */
+    public long getRejections() {
+        return rejections;
+    }
+
+    public long getTotalWait(TimeUnit unit) {
+        return unit.convert(totalWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxWait(TimeUnit unit) {
+        return unit.convert(maxWaitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getTotalHold(TimeUnit unit) {
+        return unit.convert(totalHoldNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return groupId + "[queueDepth=" + queueDepth + ", acquisitions=" + acquisitions + ", timeouts=" + timeouts
+                + ", rejections=" + rejections + ", totalWaitNanos=" + totalWaitNanos + ", maxWaitNanos=" + maxWaitNanos + "]";
+    }
+}
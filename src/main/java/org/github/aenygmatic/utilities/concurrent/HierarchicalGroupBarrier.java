@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Barrier of hierarchical groups identified by complex {@code String} keys. A complex key is made of key fragments
+ * which are separated with the given key delimiter or by default {@code :}, the same way as the keys of
+ * {@link org.github.aenygmatic.utilities.collections.ComplexStringKeyMap}.
+ * <p>
+ * Locking a group locks its whole subtree: while {@code A:B} is held exclusively no thread can lock {@code A:B:C},
+ * but {@code A:C} is still available. Locking a group takes intention locks on its ancestors, so the subtrees of a
+ * common ancestor run in parallel while locking the ancestor itself waits for all of them.
+ * <p>
+ * The levels of a key are always locked from the root to the leaf, so threads locking different groups of the same
+ * hierarchy can not deadlock. Upgrading a lock held on an ancestor (e.g. locking {@code A} exclusively while holding
+ * {@code A:B}) is not supported.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class HierarchicalGroupBarrier {
+
+    public static final String DEFAULT_DELIMITER = ":";
+
+    private final GroupBarrier<String> barrier;
+    private final String keyDelimiter;
+    private final long timeout;
+    private final TimeUnit timeUnit;
+
+    public HierarchicalGroupBarrier() {
+        this(60, TimeUnit.SECONDS);
+    }
+
+    public HierarchicalGroupBarrier(int timeout, TimeUnit timeUnit) {
+        this(new GroupBarrier<String>(timeout, timeUnit), DEFAULT_DELIMITER, timeout, timeUnit);
+    }
+
+    public HierarchicalGroupBarrier(GroupBarrier<String> barrier, String keyDelimiter, long timeout,
+            TimeUnit timeUnit) {
+        this.barrier = barrier;
+        this.keyDelimiter = keyDelimiter;
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Locks the group and its subtree exclusively.
+     *
+     * @param groupId complex key of the group
+     * @return {@code true} if the thread could get the lock in the default timeout, otherwise {@code false}
+     */
+    public boolean tryAndAwaitGroup(String groupId) {
+        return tryAndAwaitGroup(groupId, LockMode.EXCLUSIVE);
+    }
+
+    /**
+     * Locks the group and its subtree in the given mode. The default timeout is shared by all the levels of the key.
+     *
+     * @param groupId complex key of the group
+     * @param mode {@link LockMode#SHARED} or {@link LockMode#EXCLUSIVE}
+     * @return {@code true} if the thread could get the lock in the default timeout, otherwise {@code false}
+     */
+    public boolean tryAndAwaitGroup(String groupId, LockMode mode) {
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        int end = groupId.indexOf(keyDelimiter);
+        while (end >= 0) {
+            if (!awaitLevel(groupId.substring(0, end), mode.intention(), deadline)) {
+                unlockAncestors(groupId, end);
+                return false;
+            }
+            end = groupId.indexOf(keyDelimiter, end + keyDelimiter.length());
+        }
+        if (!awaitLevel(groupId, mode, deadline)) {
+            unlockAncestors(groupId, groupId.length());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Unlocks the group and the intention locks of its ancestors.
+     *
+     * @param groupId complex key of the group
+     */
+    public void unlockGroup(String groupId) {
+        barrier.unlockGroup(groupId);
+        unlockAncestors(groupId, groupId.length());
+    }
+
+    private boolean awaitLevel(String level, LockMode mode, long deadline) {
+        return barrier.tryAndAwaitGroup(level, mode, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private void unlockAncestors(String groupId, int end) {
+        int ancestorEnd = groupId.lastIndexOf(keyDelimiter, end - 1);
+        while (ancestorEnd >= 0) {
+            barrier.unlockGroup(groupId.substring(0, ancestorEnd));
+            ancestorEnd = groupId.lastIndexOf(keyDelimiter, ancestorEnd - 1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot of recorded durations in power of two buckets. The bucket {@code i} contains the durations from
+ * {@code 2^(i-1)} (included) to {@code 2^i} (excluded) nanoseconds, the bucket {@code 0} contains the zero durations.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LatencyHistogram {
+
+    static final int BUCKETS = 64;
+
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+
+    LatencyHistogram(long[] counts, long totalNanos) {
+        this.counts = counts;
+        this.totalNanos = totalNanos;
+        long sum = 0;
+        for (long bucketCount : counts) {
+            sum += bucketCount;
+        }
+        this.count = sum;
+    }
+
+    static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param bucket index of the bucket
+     * @return the number of recorded durations in the given bucket
+     */
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket index of the bucket
+     * @return the exclusive upper bound of the given bucket in nanoseconds
+     */
+    public static long getUpperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * @param unit the unit of the result
+     * @return the mean of the recorded durations
+     */
+    public double getMean(TimeUnit unit) {
+        return count == 0 ? 0 : (double) totalNanos / count / unit.toNanos(1);
+    }
+
+    /**
+     * Estimates the percentile of the recorded durations with the upper bound of the bucket it falls into.
+     *
+     * @param percentile the percentile between {@code 0} and {@code 100}
+     * @param unit the unit of the result
+     * @return upper bound of the percentile
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && seen > 0) {
+                return unit.convert(getUpperBound(bucket), TimeUnit.NANOSECONDS);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+/**
+ * The way a member holds a group of a {@link GroupBarrier}. Members holding the group in compatible modes run at the
+ * same time, an incompatible member waits until the group is released.
+ * <p>
+ * @author Balazs Berkes
+ */
+public enum LockMode {
+
+    /**
+     * Compatible with other shared members, used for operations which only read the state of the group.
+     */
+    SHARED,
+    /**
+     * Not compatible with any other member, used for operations which modify the state of the group.
+     */
+    EXCLUSIVE,
+    /**
+     * Announces that a descendant of a hierarchical group is held in shared mode, compatible with every mode except
+     * exclusive.
+     */
+    INTENTION_SHARED,
+    /**
+     * Announces that a descendant of a hierarchical group is held in exclusive mode, compatible only with the intention
+     * modes.
+     */
+    INTENTION_EXCLUSIVE;
+
+    static final LockMode[] MODES = values();
+
+    private static final boolean[][] COMPATIBILITY = {
+        {true, false, true, false},
+        {false, false, false, false},
+        {true, false, true, true},
+        {false, false, true, true}
+    };
+
+    private static final boolean[][] INCLUSION = {
+        {true, false, true, false},
+        {true, true, true, true},
+        {false, false, true, false},
+        {false, false, true, true}
+    };
+
+    /**
+     * @return the mode which has to be held on the ancestors of a hierarchical group held in this mode
+     */
+    public LockMode intention() {
+        return this == SHARED || this == INTENTION_SHARED ? INTENTION_SHARED : INTENTION_EXCLUSIVE;
+    }
+
+    /**
+     * @param other the mode of an other member of the group
+     * @return {@code true} if the members can hold the group at the same time
+     */
+    public boolean isCompatibleWith(LockMode other) {
+        return COMPATIBILITY[ordinal()][other.ordinal()];
+    }
+
+    /**
+     * @param other the requested mode
+     * @return {@code true} if holding the group in this mode grants the other mode as well
+     */
+    public boolean includes(LockMode other) {
+        return INCLUSION[ordinal()][other.ordinal()];
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+/**
+ * Decides which member of a {@link GroupBarrier} is rejected when a new member would exceed the waiter limits of the
+ * barrier.
+ * <p>
+ * @author Balazs Berkes
+ */
+public enum OverloadPolicy {
+
+    /**
+     * The new member is rejected.
+     */
+    REJECT_NEWEST,
+    /**
+     * The longest waiting member of the same group is rejected and the new member takes its place. When the group has
+     * no waiting member the new member is rejected.
+     */
+    REJECT_OLDEST
+}
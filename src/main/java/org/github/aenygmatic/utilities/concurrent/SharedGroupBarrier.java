@@ -0,0 +1,267 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Barrier which allows only one thread to run of the same group across all the processes of the machine using the same
+ * lock table file.
+ * <p>
+ * The lock table is a memory mapped file of slots, every group is hashed to a slot and the slot is locked with a
+ * byte range lock of the operating system. Groups sharing a slot are serialized together. The locks of a crashed
+ * process are released by the operating system, the slot records the id of the owner process and the time of the
+ * acquisition for diagnostics. Within the process the threads are serialized by a {@link GroupBarrier} before
+ * touching the file, so only one lock request per slot is sent to the operating system.
+ * <p>
+ * The group ids are hashed by their {@code String} form, which has to be the same in every process (e.g.
+ * {@code String}, numbers or enums).
+ *
+ * @param <T> the type of the object which is used for grouping threads
+ *
+ * @author Balazs Berkes
+ */
+public class SharedGroupBarrier<T> implements Closeable {
+
+    private static final long MAGIC = 0x47726f7570426172L;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int OWNER_OFFSET = 0;
+    private static final int ACQUIRED_OFFSET = 8;
+    private static final int MAX_SLOTS = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+    private static final long MIN_BACKOFF = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_BACKOFF = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long PROCESS_ID = processId();
+
+    private final GroupBarrier<Integer> localBarrier = new GroupBarrier<>();
+    private final ConcurrentMap<Integer, HeldSlot> heldSlots = new ConcurrentHashMap<>();
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final int slots;
+
+    private final int timeout;
+    private final TimeUnit timeUnit;
+
+    public SharedGroupBarrier(File lockTable, int slots) throws IOException {
+        this(lockTable, slots, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens or creates the lock table. When the table already exists its number of slots is used.
+     *
+     * @param lockTable the file shared by the processes
+     * @param slots the number of slots of a new table
+     * @param timeout the default timeout
+     * @param timeUnit the unit of the default timeout
+     * @throws IOException if the lock table could not be opened
+     * @throws IllegalArgumentException if the number of slots is not positive or the table would not fit in a mapping
+     */
+    public SharedGroupBarrier(File lockTable, int slots, int timeout, TimeUnit timeUnit) throws IOException {
+        if (slots <= 0 || slots > MAX_SLOTS) {
+            throw new IllegalArgumentException("Number of slots must be between 1 and " + MAX_SLOTS + ": " + slots);
+        }
+        this.file = new RandomAccessFile(lockTable, "rw");
+        this.channel = file.getChannel();
+        this.slots = initializeTable(slots);
+        this.table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) this.slots * SLOT_SIZE);
+        this.timeout = timeout;
+        this.timeUnit = timeUnit;
+    }
+
+    /**
+     * Locks the current group in the barrier and await the lock to be released when it's held by an other thread of
+     * any process with the same group id.
+     *
+     * @param groupId object which is used for grouping threads. This key will identify which group the thread should
+     * queue up to.
+     * @return {@code true} if the thread could get the lock in the default timeout, otherwise {@code false}
+     */
+    public boolean tryAndAwaitGroup(T groupId) {
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        Integer slot = slotOf(groupId);
+        if (!localBarrier.tryAndAwaitGroup(slot, LockMode.EXCLUSIVE, timeout, timeUnit)) {
+            return false;
+        }
+        HeldSlot held = heldSlots.get(slot);
+        if (held != null) {
+            held.holds++;
+            return true;
+        }
+        FileLock lock = awaitSlot(slot, deadline);
+        if (lock == null) {
+            localBarrier.unlockGroup(slot);
+            return false;
+        }
+        heldSlots.put(slot, new HeldSlot(lock));
+        recordOwner(slot, PROCESS_ID, System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Unlocks the current group allowing to the queued threads of any process to execute.
+     *
+     * @param groupId object which is used for grouping threads. This key will identify which group the thread should
+     * queue up to.
+     */
+    public void unlockGroup(T groupId) {
+        Integer slot = slotOf(groupId);
+        HeldSlot held = heldSlots.get(slot);
+        if (held == null || held.owner != Thread.currentThread()) {
+            return;
+        }
+        if (--held.holds == 0) {
+            heldSlots.remove(slot);
+            recordOwner(slot, 0, 0);
+            releaseQuietly(held.lock);
+        }
+        localBarrier.unlockGroup(slot);
+    }
+
+    /**
+     * Reads the owner of the slot of the group from the lock table.
+     *
+     * @param groupId object which is used for grouping threads
+     * @return the process id of the owner or {@code 0} if the slot of the group is free
+     */
+    public long getOwnerProcess(T groupId) {
+        return table.getLong(indexOf(slotOf(groupId)) + OWNER_OFFSET);
+    }
+
+    /**
+     * @param groupId object which is used for grouping threads
+     * @return the time the slot of the group was acquired in milliseconds, or {@code 0} if it's free
+     */
+    public long getAcquisitionTime(T groupId) {
+        return table.getLong(indexOf(slotOf(groupId)) + ACQUIRED_OFFSET);
+    }
+
+    /**
+     * Closes the lock table, the locks held by this instance are released.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+
+    private int initializeTable(int requestedSlots) throws IOException {
+        FileLock headerLock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            if (file.length() >= HEADER_SIZE && file.readLong() == MAGIC) {
+                int existingSlots = file.readInt();
+                if (existingSlots <= 0 || existingSlots > MAX_SLOTS
+                        || file.length() < HEADER_SIZE + (long) existingSlots * SLOT_SIZE) {
+                    throw new IOException("Lock table is corrupted, invalid number of slots: " + existingSlots);
+                }
+                return existingSlots;
+            }
+            file.setLength(HEADER_SIZE + (long) requestedSlots * SLOT_SIZE);
+            file.seek(0);
+            file.writeLong(MAGIC);
+            file.writeInt(requestedSlots);
+            return requestedSlots;
+        } finally {
+            headerLock.release();
+        }
+    }
+
+    private FileLock awaitSlot(int slot, long deadline) {
+        long backoff = MIN_BACKOFF;
+        for (;;) {
+            FileLock lock = tryLockSlot(slot);
+            long remaining = deadline - System.nanoTime();
+            if (lock != null || remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                return lock;
+            }
+            LockSupport.parkNanos(Math.min(backoff, remaining));
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    private FileLock tryLockSlot(int slot) {
+        try {
+            return channel.tryLock(offsetOf(slot), SLOT_SIZE, false);
+        } catch (OverlappingFileLockException e) {
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Lock table is not available", e);
+        }
+    }
+
+    private void recordOwner(int slot, long processId, long acquiredAt) {
+        int offset = indexOf(slot);
+        table.putLong(offset + OWNER_OFFSET, processId);
+        table.putLong(offset + ACQUIRED_OFFSET, acquiredAt);
+    }
+
+    private Integer slotOf(T groupId) {
+        int hash = String.valueOf(groupId).hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % slots;
+    }
+
+    private static long offsetOf(int slot) {
+        return HEADER_SIZE + (long) slot * SLOT_SIZE;
+    }
+
+    private static int indexOf(int slot) {
+        // the table is limited to MAX_SLOTS, so the offset of every slot is a valid index of the mapping
+        return (int) offsetOf(slot);
+    }
+
+    private static void releaseQuietly(FileLock lock) {
+        try {
+            lock.release();
+        } catch (IOException e) {
+            // the lock is released by the operating system when the channel is closed
+        }
+    }
+
+    private static long processId() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('@')));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static class HeldSlot {
+
+        private final FileLock lock;
+        private final Thread owner = Thread.currentThread();
+        private int holds = 1;
+
+        private HeldSlot(FileLock lock) {
+            this.lock = lock;
+        }
+    }
+}
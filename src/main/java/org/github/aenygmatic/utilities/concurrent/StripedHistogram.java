@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with power of two buckets. Every stripe of threads records into its own row of buckets, so
+ * recording is a single uncontended atomic increment without allocation.
+ * <p>
+ * @author Balazs Berkes
+ */
+class StripedHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(StripedCounter.STRIPES * LatencyHistogram.BUCKETS);
+    private final StripedCounter total = new StripedCounter();
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(StripedCounter.stripe() * LatencyHistogram.BUCKETS + LatencyHistogram.bucketOf(value));
+        total.add(value);
+    }
+
+    LatencyHistogram snapshot() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (int stripe = 0; stripe < StripedCounter.STRIPES; stripe++) {
+            for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+                counts[bucket] += buckets.get(stripe * LatencyHistogram.BUCKETS + bucket);
+            }
+        }
+        return new LatencyHistogram(counts, total.sum());
+    }
+}
@@ -21,6 +21,10 @@ import static org.junit.Assert.assertThat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hamcrest.Matcher;
 import org.junit.Test;
@@ -36,6 +40,140 @@ public class IntegersTest {
         assertThat(betweenWithSteps(0, 10, 2), isListOf(0, 2, 4, 6, 8));
     }
 
+    @Test
+    public void testRangeIsReusable() {
+        IntRange underTest = range(3);
+
+        assertThat(toList(underTest), isListOf(0, 1, 2));
+        assertThat(toList(underTest), isListOf(0, 1, 2));
+    }
+
+    @Test
+    public void testIntIterator() {
+        IntIterator iterator = range(1, 7, 3).intIterator();
+
+        assertThat(iterator.hasNext(), is(true));
+        assertThat(iterator.nextInt(), is(1));
+        assertThat(iterator.nextInt(), is(4));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testIntIteratorWhenExhausted() {
+        range(0).intIterator().nextInt();
+    }
+
+    @Test
+    public void testForEach() {
+        final List<Integer> list = new ArrayList<>();
+
+        range(0, 10, 4).forEachInt(new IntConsumer() {
+            @Override
+            public void accept(int value) {
+                list.add(value);
+            }
+        });
+
+        assertThat(list, isListOf(0, 4, 8));
+    }
+
+    @Test
+    public void testSizeAndToArray() {
+        assertThat(range(0, 10, 3).size(), is(4));
+        assertThat(range(5, 5).isEmpty(), is(true));
+        assertThat(range(5, 2).size(), is(0));
+        assertThat(range(2, 6).toArray(), is(new int[]{2, 3, 4, 5}));
+        assertThat(range(0, 10, 3).get(3), is(9));
+    }
+
+    @Test
+    public void testRangeDoesNotOverflowNearMaxValue() {
+        IntRange underTest = range(Integer.MAX_VALUE - 5, Integer.MAX_VALUE, 3);
+
+        assertThat(toList(underTest), isListOf(Integer.MAX_VALUE - 5, Integer.MAX_VALUE - 2));
+        assertThat(range(Integer.MIN_VALUE, Integer.MAX_VALUE).count(), is(0xFFFFFFFFL));
+        assertThat(range(Integer.MIN_VALUE, Integer.MAX_VALUE).size(), is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testRangeWithNegativeStep() {
+        assertThat(range(10, 0, -3).toArray(), is(new int[]{10, 7, 4, 1}));
+        assertThat(range(0, 10, -1).isEmpty(), is(true));
+        assertThat(range(Integer.MIN_VALUE + 3, Integer.MIN_VALUE, -2).toArray(),
+                is(new int[]{Integer.MIN_VALUE + 3, Integer.MIN_VALUE + 1}));
+        assertThat(range(9, -1, -2).split()[1].toArray(), is(new int[]{5, 3, 1}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeWithZeroStep() {
+        range(0, 10, 0);
+    }
+
+    @Test
+    public void testSplit() {
+        IntRange[] halves = range(1, 20, 3).split();
+
+        assertThat(halves[0].toArray(), is(new int[]{1, 4, 7}));
+        assertThat(halves[1].toArray(), is(new int[]{10, 13, 16, 19}));
+        assertThat(halves[1].getEnd(), is(20));
+    }
+
+    @Test
+    public void testSplitNearMaxValue() {
+        IntRange[] halves = range(Integer.MAX_VALUE - 4, Integer.MAX_VALUE, 2).split();
+
+        assertThat(halves[0].toArray(), is(new int[]{Integer.MAX_VALUE - 4}));
+        assertThat(halves[1].toArray(), is(new int[]{Integer.MAX_VALUE - 2}));
+        assertThat(range(3).subRange(3, 3).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testParallelForEach() {
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger calls = new AtomicInteger();
+
+        range(0, 100000, 3).forEachInt(new IntConsumer() {
+            @Override
+            public void accept(int value) {
+                sum.addAndGet(value);
+                calls.incrementAndGet();
+            }
+        }, new ForkJoinPool(4));
+
+        assertThat(calls.get(), is(33334));
+        assertThat(sum.get(), is(sequentialSum(range(0, 100000, 3))));
+    }
+
+    @Test
+    public void testParallelReduce() {
+        IntBinaryOperator sum = new IntBinaryOperator() {
+            @Override
+            public int applyAsInt(int left, int right) {
+                return left + right;
+            }
+        };
+        IntRange underTest = range(-50000, 70000, 7);
+
+        assertThat(underTest.reduce(0, sum, new ForkJoinPool(4)), is(underTest.reduce(0, sum)));
+        assertThat((long) underTest.reduce(0, sum), is(sequentialSum(underTest)));
+    }
+
+    private static long sequentialSum(IntRange range) {
+        long sum = 0;
+        for (int value : range.toArray()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static List<Integer> toList(Iterable<Integer> range) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer i : range) {
+            list.add(i);
+        }
+        return list;
+    }
+
     private static Matcher<List<Integer>> isListOf(Integer... ints) {
         return is(Arrays.asList(ints));
     }
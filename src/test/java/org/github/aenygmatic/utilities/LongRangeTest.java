@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.github.aenygmatic.utilities.Integers.longRange;
+import static org.github.aenygmatic.utilities.Integers.processChunks;
+
+/**
+ * Unit test for {@link LongRange}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LongRangeTest {
+
+    @Test
+    public void testIteration() {
+        assertThat(toList(longRange(3, 7)), is(Arrays.asList(3L, 4L, 5L, 6L)));
+        assertThat(toList(longRange(10, 0, -3)), is(Arrays.asList(10L, 7L, 4L, 1L)));
+        assertThat(longRange(0, 10, -1).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testStepsNearTheBounds() {
+        assertThat(toList(longRange(Long.MAX_VALUE - 5, Long.MAX_VALUE, 3)),
+                is(Arrays.asList(Long.MAX_VALUE - 5, Long.MAX_VALUE - 2)));
+        assertThat(toList(longRange(Long.MIN_VALUE + 5, Long.MIN_VALUE, -3)),
+                is(Arrays.asList(Long.MIN_VALUE + 5, Long.MIN_VALUE + 2)));
+        assertThat(longRange(Long.MIN_VALUE, Long.MAX_VALUE - 1, 2).count(), is(Long.MAX_VALUE));
+        assertThat(longRange(Long.MIN_VALUE, Long.MAX_VALUE - 1, 2).get(Long.MAX_VALUE - 1), is(Long.MAX_VALUE - 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargeRange() {
+        longRange(Long.MIN_VALUE, Long.MAX_VALUE, 2);
+    }
+
+    @Test
+    public void testForEach() {
+        final List<Long> values = new ArrayList<>();
+
+        longRange(5, -5, -4).forEachLong(new LongConsumer() {
+            @Override
+            public void accept(long value) {
+                values.add(value);
+            }
+        });
+
+        assertThat(values, is(Arrays.asList(5L, 1L, -3L)));
+    }
+
+    @Test
+    public void testChunks() {
+        List<LongRange> chunks = longRange(0, 20, 2).chunks(4);
+
+        assertThat(chunks.size(), is(3));
+        assertThat(toList(chunks.get(0)), is(Arrays.asList(0L, 2L, 4L, 6L)));
+        assertThat(toList(chunks.get(1)), is(Arrays.asList(8L, 10L, 12L, 14L)));
+        assertThat(toList(chunks.get(2)), is(Arrays.asList(16L, 18L)));
+        assertThat(chunks.get(2).getEnd(), is(20L));
+        assertThat(longRange(0, 0).chunks(4).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testBalancedChunks() {
+        List<LongRange> chunks = longRange(10, 0, -1).balancedChunks(3);
+
+        assertThat(chunks.size(), is(3));
+        assertThat(toList(chunks.get(0)), is(Arrays.asList(10L, 9L, 8L, 7L)));
+        assertThat(toList(chunks.get(1)), is(Arrays.asList(6L, 5L, 4L)));
+        assertThat(toList(chunks.get(2)), is(Arrays.asList(3L, 2L, 1L)));
+        assertThat(longRange(0, 2).balancedChunks(5).size(), is(2));
+    }
+
+    @Test
+    public void testChunksOfHugeRange() {
+        List<LongRange> chunks = longRange(Long.MIN_VALUE, Long.MAX_VALUE - 1, 2).balancedChunks(7);
+
+        long total = 0;
+        long expectedStart = Long.MIN_VALUE;
+        for (LongRange chunk : chunks) {
+            assertThat(chunk.getStart(), is(expectedStart));
+            total += chunk.count();
+            expectedStart = chunk.getEnd();
+        }
+        assertThat(total, is(Long.MAX_VALUE));
+        assertThat(chunks.get(6).getEnd(), is(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    public void testProcessChunks() throws Exception {
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            processChunks(longRange(1, 10001).chunks(100), 3, executor, new RangeProcessor() {
+                @Override
+                public void process(LongRange chunk) throws Exception {
+                    int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    Thread.sleep(1);
+                    for (Long value : chunk) {
+                        sum.addAndGet(value);
+                    }
+                    running.decrementAndGet();
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(sum.get(), is(10000L * 10001 / 2));
+        assertThat(maxRunning.get() <= 3, is(true));
+    }
+
+    @Test
+    public void testProcessChunksWithFailure() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("expected by the test");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            processChunks(longRange(0, 100).chunks(10), 2, executor, new RangeProcessor() {
+                @Override
+                public void process(LongRange chunk) {
+                    if (chunk.getStart() == 50) {
+                        throw failure;
+                    }
+                }
+            });
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Long> toList(LongRange range) {
+        List<Long> list = new ArrayList<>();
+        for (Long value : range) {
+            list.add(value);
+        }
+        return list;
+    }
+}
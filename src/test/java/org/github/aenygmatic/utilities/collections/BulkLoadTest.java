@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link BulkLoad}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class BulkLoadTest {
+
+    private final Random random = new Random(42);
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testSameResultAsSequentialPuts() {
+        Map<String, String> entries = randomEntries(500, "v");
+
+        assertEquals(sequential(entries), bulk(entries, null));
+    }
+
+    @Test
+    public void testSameResultAsSequentialPutsInPool() {
+        Map<String, String> entries = randomEntries(30000, "v");
+
+        assertEquals(sequential(entries), bulk(entries, pool));
+    }
+
+    @Test
+    public void testLaterKeyOverridesFragmentOfEarlierKey() {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("A:B:C", "ABC-value");
+        entries.put("A:B", "AB-value");
+        entries.put("A:D", "AD-value");
+
+        Map<String, String> actual = bulk(entries, null);
+
+        assertEquals("ABC-value", actual.get("A"));
+        assertEquals("AB-value", actual.get("A:B"));
+        assertEquals(7, actual.size());
+    }
+
+    private Map<String, String> sequential(Map<String, String> entries) {
+        KeyStorage<String> storage = preloaded(new HashKeyStorage<String>(":"));
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            storage.putPath(entry.getKey(), entry.getValue());
+        }
+        return new HashMap<>(storage);
+    }
+
+    private Map<String, String> bulk(Map<String, String> entries, ForkJoinPool forkJoinPool) {
+        KeyStorage<String> storage = preloaded(new TrieKeyStorage<String>(":"));
+        new BulkLoad<String>(entries, ":").into(storage, forkJoinPool);
+        return new HashMap<>(storage);
+    }
+
+    private KeyStorage<String> preloaded(KeyStorage<String> storage) {
+        storage.putPath("a:b", "preloaded-ab");
+        storage.putPath("c", "preloaded-c");
+        return storage;
+    }
+
+    private Map<String, String> randomEntries(int count, String prefix) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder key = new StringBuilder();
+            int depth = 1 + random.nextInt(5);
+            for (int level = 0; level < depth; level++) {
+                if (level > 0) {
+                    key.append(':');
+                }
+                key.append((char) ('a' + random.nextInt(level == 0 ? 26 : 8)));
+            }
+            entries.put(key.toString(), prefix + i);
+        }
+        return entries;
+    }
+}
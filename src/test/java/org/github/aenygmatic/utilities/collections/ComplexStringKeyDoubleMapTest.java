@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ComplexStringKeyDoubleMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ComplexStringKeyDoubleMapTest {
+
+    private static final double DELTA = 0.0;
+
+    private ComplexStringKeyDoubleMap underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new ComplexStringKeyDoubleMap(":", Double.NaN);
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        underTest.put("A", 1.5);
+        underTest.put("A:B:C", 3.25);
+
+        assertEquals(3.25, underTest.get("A:B:C:D"), DELTA);
+        assertEquals(3.25, underTest.get("A:B"), DELTA);
+        assertEquals(1.5, underTest.get("A:X"), DELTA);
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testAbsentValueIsReturnedForMissingKeys() {
+        assertTrue(Double.isNaN(underTest.get("A")));
+        assertTrue(Double.isNaN(underTest.put("A", -0.0)));
+        assertTrue(Double.isNaN(underTest.remove("B")));
+        assertEquals(-0.0, underTest.get("A:B"), DELTA);
+        assertTrue(Double.isNaN(underTest.getAbsentValue()));
+        assertTrue(Double.isNaN(new ComplexStringKeyDoubleMap().get("A")));
+    }
+
+    @Test
+    public void testPutReturnsPreviousElement() {
+        assertTrue(Double.isNaN(underTest.put("A:B", 2.0)));
+        assertEquals(2.0, underTest.put("A:B", 5.0), DELTA);
+        assertEquals(2.0, underTest.put("A", 1.0), DELTA);
+        assertEquals(5.0, underTest.get("A:B:C"), DELTA);
+    }
+
+    @Test
+    public void testRemoveKeepsTheOtherKeys() {
+        for (int i = 0; i < 1000; i++) {
+            underTest.put("key:" + i, i / 4.0);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals(i / 4.0, underTest.remove("key:" + i), DELTA);
+        }
+
+        assertTrue(Double.isNaN(underTest.remove("key:0")));
+        assertFalse(underTest.containsKey("key:3"));
+        assertTrue(underTest.containsKey("key"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 == 0 ? 0.0 : i / 4.0, underTest.get("key:" + i), DELTA);
+        }
+        assertEquals(1 + 666, underTest.size());
+        assertEquals(underTest.size(), underTest.keys().length);
+    }
+
+    @Test
+    public void testClear() {
+        underTest.put("A:B", 2.0);
+        underTest.clear();
+
+        assertTrue(underTest.isEmpty());
+        assertTrue(Double.isNaN(underTest.get("A:B")));
+    }
+}
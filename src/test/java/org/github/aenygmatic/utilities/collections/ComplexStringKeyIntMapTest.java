@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ComplexStringKeyIntMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ComplexStringKeyIntMapTest {
+
+    private ComplexStringKeyIntMap underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new ComplexStringKeyIntMap(":", -1);
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        underTest.put("A", 1);
+        underTest.put("A:B:C", 3);
+
+        assertEquals(3, underTest.get("A:B:C:D"));
+        assertEquals(3, underTest.get("A:B"));
+        assertEquals(1, underTest.get("A:X"));
+        assertEquals(-1, underTest.get("B"));
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testPutReturnsPreviousElement() {
+        assertEquals(-1, underTest.put("A:B", 2));
+        assertEquals(2, underTest.put("A:B", 5));
+        assertEquals(2, underTest.put("A", 1));
+        assertEquals(5, underTest.get("A:B:C"));
+    }
+
+    @Test
+    public void testRemoveKeepsTheOtherKeys() {
+        for (int i = 0; i < 1000; i++) {
+            underTest.put("key:" + i, i);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals(i, underTest.remove("key:" + i));
+        }
+
+        assertEquals(-1, underTest.remove("key:0"));
+        assertFalse(underTest.containsKey("key:3"));
+        assertTrue(underTest.containsKey("key"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 == 0 ? 0 : i, underTest.get("key:" + i));
+        }
+        assertEquals(1 + 666, underTest.size());
+        assertEquals(underTest.size(), underTest.keys().length);
+    }
+
+    @Test
+    public void testClear() {
+        underTest.put("A:B", 2);
+        underTest.clear();
+
+        assertTrue(underTest.isEmpty());
+        assertEquals(-1, underTest.get("A:B"));
+    }
+}
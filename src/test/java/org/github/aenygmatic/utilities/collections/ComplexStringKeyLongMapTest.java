@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ComplexStringKeyLongMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ComplexStringKeyLongMapTest {
+
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private ComplexStringKeyLongMap underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new ComplexStringKeyLongMap(":", ABSENT);
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        underTest.put("A", 1L);
+        underTest.put("A:B:C", Long.MAX_VALUE);
+
+        assertEquals(Long.MAX_VALUE, underTest.get("A:B:C:D"));
+        assertEquals(Long.MAX_VALUE, underTest.get("A:B"));
+        assertEquals(1L, underTest.get("A:X"));
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testAbsentValueIsReturnedForMissingKeys() {
+        assertEquals(ABSENT, underTest.get("A"));
+        assertEquals(ABSENT, underTest.put("A", 0L));
+        assertEquals(ABSENT, underTest.remove("B"));
+        assertEquals(0L, underTest.get("A:B"));
+        assertEquals(ABSENT, underTest.getAbsentValue());
+        assertEquals(0L, new ComplexStringKeyLongMap().get("A"));
+    }
+
+    @Test
+    public void testPutReturnsPreviousElement() {
+        assertEquals(ABSENT, underTest.put("A:B", 2L));
+        assertEquals(2L, underTest.put("A:B", 5L));
+        assertEquals(2L, underTest.put("A", 1L));
+        assertEquals(5L, underTest.get("A:B:C"));
+    }
+
+    @Test
+    public void testRemoveKeepsTheOtherKeys() {
+        for (int i = 0; i < 1000; i++) {
+            underTest.put("key:" + i, i * 1000000000000L);
+        }
+        for (int i = 0; i < 1000; i += 3) {
+            assertEquals(i * 1000000000000L, underTest.remove("key:" + i));
+        }
+
+        assertEquals(ABSENT, underTest.remove("key:0"));
+        assertFalse(underTest.containsKey("key:3"));
+        assertTrue(underTest.containsKey("key"));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 == 0 ? 0L : i * 1000000000000L, underTest.get("key:" + i));
+        }
+        assertEquals(1 + 666, underTest.size());
+        assertEquals(underTest.size(), underTest.keys().length);
+    }
+
+    @Test
+    public void testClear() {
+        underTest.put("A:B", 2L);
+        underTest.clear();
+
+        assertTrue(underTest.isEmpty());
+        assertEquals(ABSENT, underTest.get("A:B"));
+    }
+}
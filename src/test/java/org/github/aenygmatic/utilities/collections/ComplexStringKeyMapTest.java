@@ -17,8 +17,11 @@ package org.github.aenygmatic.utilities.collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.junit.Before;
@@ -149,4 +152,238 @@ public class ComplexStringKeyMapTest {
 
         assertFalse(actual);
     }
+
+    @Test
+    public void testFallbackMappingWithTrieStorage() {
+        source.put("A", "A-value");
+        source.put("A:A", "AA-value");
+        source.put("B:B", "BB-value");
+        underTest = new ComplexStringKeyMap<>(ComplexStringKeyMap.DEFAULT_DELIMITER, ComplexStringKeyMap.Storage.TRIE);
+        underTest.putAll(source);
+
+        assertEquals("AA-value", underTest.get("A:A:B"));
+        assertEquals("A-value", underTest.get("A:B"));
+        assertEquals("BB-value", underTest.get("B"));
+        assertEquals(4, underTest.size());
+    }
+
+    @Test
+    public void testFallbackMappingWithRegexMetacharacterDelimiter() {
+        source.put("A", "A-value");
+        source.put("A.A", "AA-value");
+        underTest = new ComplexStringKeyMap<>(source, ".");
+
+        assertEquals("AA-value", underTest.get("A.A.B"));
+        assertEquals("A-value", underTest.get("A.B"));
+        assertNull(underTest.get("AxA"));
+    }
+
+    @Test
+    public void testResolutionCacheCountsHitsAndMisses() {
+        underTest.setResolutionCacheSize(10);
+        underTest.put("A", "A-value");
+
+        assertEquals("A-value", underTest.get("A:B:C"));
+        assertEquals("A-value", underTest.get("A:B:C"));
+        assertNull(underTest.get("B"));
+        assertNull(underTest.get("B"));
+
+        assertEquals(2, underTest.getResolutionCacheHits());
+        assertEquals(2, underTest.getResolutionCacheMisses());
+    }
+
+    @Test
+    public void testResolutionCacheIsInvalidatedByModifications() {
+        underTest.setResolutionCacheSize(10);
+        underTest.put("A", "A-value");
+        assertEquals("A-value", underTest.get("A:B:C"));
+        assertNull(underTest.get("B:C"));
+
+        underTest.put("A:B", "AB-value");
+        underTest.put("B:C:D", "BCD-value");
+        assertEquals("AB-value", underTest.get("A:B:C"));
+        assertEquals("BCD-value", underTest.get("B:C"));
+
+        underTest.remove("A:B");
+        assertEquals("A-value", underTest.get("A:B:C"));
+
+        underTest.clear();
+        assertNull(underTest.get("A:B:C"));
+    }
+
+    @Test
+    public void testResolutionCacheEvictsLeastRecentlyUsedKey() {
+        underTest.setResolutionCacheSize(2);
+        underTest.put("A", "A-value");
+        underTest.get("A:1");
+        underTest.get("A:2");
+        underTest.get("A:1");
+        underTest.get("A:3");
+
+        underTest.get("A:1");
+        underTest.get("A:2");
+
+        assertEquals(2, underTest.getResolutionCacheHits());
+        assertEquals(4, underTest.getResolutionCacheMisses());
+    }
+
+    @Test
+    public void testResolutionCacheKeepsKeysOfOtherSubtrees() {
+        underTest.setResolutionCacheSize(10);
+        underTest.put("A", "A-value");
+        underTest.put("B", "B-value");
+        underTest.get("A:1");
+        underTest.get("B:1");
+
+        underTest.put("A:1", "A1-value");
+        assertEquals("A1-value", underTest.get("A:1"));
+        assertEquals("B-value", underTest.get("B:1"));
+
+        assertEquals(1, underTest.getResolutionCacheHits());
+        assertEquals(3, underTest.getResolutionCacheMisses());
+    }
+
+    @Test
+    public void testResolutionCacheWithMultiCharacterDelimiter() {
+        underTest = new ComplexStringKeyMap<>("::");
+        underTest.setResolutionCacheSize(10);
+        underTest.put("A", "A-value");
+        assertEquals("A-value", underTest.get("A:::B"));
+        assertEquals("A-value", underTest.get("A:::B::C"));
+
+        underTest.put("A:::B::C", "ABC-value");
+        assertEquals("ABC-value", underTest.get("A:::B"));
+        assertEquals("ABC-value", underTest.get("A:::B::C"));
+    }
+
+    @Test
+    public void testSegmentsUseTheResolutionCache() {
+        underTest.setResolutionCacheSize(10);
+        underTest.put("A", "A-value");
+
+        assertEquals("A-value", underTest.getBySegments("A", 1));
+        assertEquals("A-value", underTest.get("A:1"));
+
+        assertEquals(1, underTest.getResolutionCacheHits());
+        assertEquals(1, underTest.getResolutionCacheMisses());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewsAreReadOnlyWithResolutionCache() {
+        underTest.put("A", "A-value");
+        underTest.setResolutionCacheSize(10);
+
+        underTest.entrySet().iterator().next().setValue("other");
+    }
+
+    @Test
+    public void testSegmentsWithHashStorage() {
+        underTest.putBySegments(new Object[]{"tenant", 42}, "T42-value");
+
+        assertEquals("T42-value", underTest.get("tenant:42"));
+        assertEquals("T42-value", underTest.getBySegments("tenant", 42, "product"));
+        assertEquals("T42-value", underTest.getBySegments("tenant"));
+        assertNull(underTest.getBySegments("tenant4", 2));
+    }
+
+    @Test
+    public void testSegmentsWithTrieStorage() {
+        underTest = new ComplexStringKeyMap<>(ComplexStringKeyMap.DEFAULT_DELIMITER, ComplexStringKeyMap.Storage.TRIE);
+        underTest.put("tenant:42", "T42-value");
+
+        assertEquals("T42-value", underTest.getBySegments("tenant", 42, "product"));
+        assertNull(underTest.getBySegments("other", 42));
+    }
+
+    @Test
+    public void testSubtreeOperationsWithHashStorage() {
+        assertSubtreeOperations();
+    }
+
+    @Test
+    public void testSubtreeOperationsWithTrieStorage() {
+        underTest = new ComplexStringKeyMap<>(ComplexStringKeyMap.DEFAULT_DELIMITER, ComplexStringKeyMap.Storage.TRIE);
+
+        assertSubtreeOperations();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubMapRejectsKeysOutOfTheSubtree() {
+        underTest.subMap("A").put("AB", "AB-value");
+    }
+
+    private void assertSubtreeOperations() {
+        underTest.put("A:B:C", "ABC-value");
+        underTest.put("A:D", "AD-value");
+        underTest.put("AB", "AB-value");
+        Map<String, String> expected = new HashMap<>();
+        expected.put("A:B", "ABC-value");
+        expected.put("A:B:C", "ABC-value");
+
+        Map<String, String> subMap = underTest.subMap("A:B");
+        final Map<String, String> visited = new HashMap<>();
+        underTest.forEachUnder("A:B", new EntryConsumer<String, String>() {
+            @Override
+            public void accept(String key, String value) {
+                visited.put(key, value);
+            }
+        });
+
+        assertEquals(expected, new HashMap<>(subMap));
+        assertEquals(expected, visited);
+        assertEquals(4, underTest.countUnder("A"));
+        assertEquals(0, underTest.countUnder("X"));
+
+        subMap.put("A:B:E", "ABE-value");
+        assertEquals("ABE-value", underTest.get("A:B:E"));
+        Iterator<Map.Entry<String, String>> iterator = underTest.iteratorUnder("A:B");
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(0, subMap.size());
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testLookupStatisticsWithHashStorage() {
+        assertLookupStatistics();
+    }
+
+    @Test
+    public void testLookupStatisticsWithTrieStorage() {
+        underTest = new ComplexStringKeyMap<>(ComplexStringKeyMap.DEFAULT_DELIMITER, ComplexStringKeyMap.Storage.TRIE);
+
+        assertLookupStatistics();
+    }
+
+    @Test
+    public void testLookupStatisticsAreEmptyWhenDisabled() {
+        underTest.put("A", "A-value");
+        underTest.get("A");
+
+        assertEquals(0, underTest.getLookupStatistics().getLookups());
+    }
+
+    private void assertLookupStatistics() {
+        underTest.put("A:B", "AB-value");
+        underTest.setMetricsEnabled(true);
+
+        underTest.get("A:B");
+        underTest.get("A:B:C");
+        underTest.get("A:B:C:D");
+        underTest.get("A:X:C:D");
+        underTest.get("X");
+        LookupStatistics statistics = underTest.getLookupStatistics();
+
+        assertEquals(5, statistics.getLookups());
+        assertEquals(1, statistics.getExactHits());
+        assertEquals(1, statistics.getFallbackHits(1));
+        assertEquals(1, statistics.getFallbackHits(2));
+        assertEquals(1, statistics.getFallbackHits(3));
+        assertEquals(3, statistics.getFallbackHits());
+        assertEquals(1, statistics.getMisses());
+        assertTrue(statistics.getAverageProbes() >= 1);
+        assertTrue(statistics.getAverageNanos() > 0);
+    }
 }
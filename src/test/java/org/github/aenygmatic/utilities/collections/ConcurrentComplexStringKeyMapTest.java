@@ -0,0 +1,322 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ConcurrentComplexStringKeyMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ConcurrentComplexStringKeyMapTest {
+
+    private ExecutorService executor;
+    private ConcurrentComplexStringKeyMap<String> underTest;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        underTest = new ConcurrentComplexStringKeyMap<>();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        underTest.put("A", "A-value");
+        underTest.put("A:A", "AA-value");
+        underTest.put("B:B", "BB-value");
+
+        assertEquals("AA-value", underTest.get("A:A:B"));
+        assertEquals("A-value", underTest.get("A:B"));
+        assertEquals("BB-value", underTest.get("B"));
+        assertNull(underTest.get("C"));
+        assertEquals(4, underTest.size());
+    }
+
+    @Test
+    public void testPutAllIsPublishedAsOneGeneration() {
+        underTest.put("A", "A-value");
+        Map<String, String> contents = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            contents.put("A:" + i, "A" + i + "-value");
+            contents.put("B:" + i + ":C", "B" + i + "C-value");
+        }
+        long generation = underTest.getGeneration();
+
+        underTest.putAll(contents);
+
+        assertEquals(generation + 1, underTest.getGeneration());
+        assertEquals("A-value", underTest.get("A"));
+        assertEquals("A7-value", underTest.get("A:7:X"));
+        assertEquals("B7C-value", underTest.get("B:7"));
+        assertEquals(1 + 1000 + 1 + 2000, underTest.size());
+        assertEquals(new HashMap<>(underTest), new HashMap<>(new ConcurrentComplexStringKeyMap<>(underTest)));
+    }
+
+    @Test
+    public void testPutOverridesOnlyTheLeaf() {
+        underTest.put("A", "A-value");
+        underTest.put("A:B", "AB-value");
+
+        String previous = underTest.put("A:B", "AB-new");
+
+        assertEquals("AB-value", previous);
+        assertEquals("A-value", underTest.get("A"));
+        assertEquals("AB-new", underTest.get("A:B"));
+    }
+
+    @Test
+    public void testRemoveKeepsTheOtherKeys() {
+        underTest.put("A:B:C", "ABC-value");
+        underTest.put("A:D", "AD-value");
+
+        assertEquals("ABC-value", underTest.remove("A:B:C"));
+
+        assertFalse(underTest.containsKey("A:B:C"));
+        assertEquals("ABC-value", underTest.get("A:B"));
+        assertEquals("AD-value", underTest.get("A:D:C"));
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testConditionalOperations() {
+        assertNull(underTest.putIfAbsent("A", "A-value"));
+        assertEquals("A-value", underTest.putIfAbsent("A", "A-other"));
+        assertNull(underTest.replace("B", "B-value"));
+        assertTrue(underTest.replace("A", "A-value", "A-new"));
+        assertFalse(underTest.remove("A", "A-value"));
+        assertTrue(underTest.remove("A", "A-new"));
+        assertTrue(underTest.isEmpty());
+    }
+
+    @Test
+    public void testIteratorWorksOnSnapshot() {
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            underTest.put("A:" + i, "value-" + i);
+            expected.put("A:" + i, "value-" + i);
+        }
+        expected.put("A", "value-0");
+
+        Iterator<Map.Entry<String, String>> iterator = underTest.entrySet().iterator();
+        underTest.clear();
+        Map<String, String> actual = new HashMap<>();
+        while (iterator.hasNext()) {
+            Map.Entry<String, String> entry = iterator.next();
+            actual.put(entry.getKey(), entry.getValue());
+        }
+
+        assertEquals(expected, actual);
+        assertTrue(underTest.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentWritersAndReaders() throws Exception {
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(writer("W" + t)));
+            results.add(executor.submit(reader("W" + t)));
+        }
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        assertEquals(4 * 201, underTest.size());
+    }
+
+    private Callable<Boolean> writer(final String prefix) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                for (int i = 0; i < 200; i++) {
+                    underTest.put(prefix + ":" + i + ":leaf", prefix + i);
+                    underTest.remove(prefix + ":" + i + ":leaf");
+                }
+                return true;
+            }
+        };
+    }
+
+    private Callable<Boolean> reader(final String prefix) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                for (int i = 0; i < 200; i++) {
+                    String value = underTest.get(prefix + ":" + i + ":leaf:other");
+                    if (value != null && !value.equals(prefix + i) && !value.equals(prefix + 0)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    @Test
+    public void testSegments() {
+        underTest.putBySegments(new Object[]{"tenant", 42}, "T42-value");
+
+        assertEquals("T42-value", underTest.get("tenant:42:product"));
+        assertEquals("T42-value", underTest.getBySegments("tenant", 42, "product"));
+        assertNull(underTest.getBySegments("other"));
+    }
+
+    @Test
+    public void testReloadIsInvisibleUntilPublished() {
+        underTest.put("A:B", "AB-value");
+        long generation = underTest.getGeneration();
+
+        ConcurrentComplexStringKeyMap<String>.Reload reload = underTest.reload()
+                .put("A:C", "AC-value")
+                .remove("A:B");
+        assertEquals("AB-value", underTest.get("A:B"));
+        assertFalse(underTest.containsKey("A:C"));
+
+        long published = reload.publish();
+
+        assertEquals(generation + 1, published);
+        assertEquals(published, underTest.getGeneration());
+        assertEquals("AB-value", underTest.get("A:B"));
+        assertFalse(underTest.containsKey("A:B"));
+        assertEquals("AC-value", underTest.get("A:C"));
+    }
+
+    @Test
+    public void testReplaceWithAppliesTheDifference() {
+        underTest.put("A:B", "AB-value");
+        underTest.put("C", "C-value");
+        Map<String, String> contents = new HashMap<>();
+        contents.put("A", "A-new");
+        contents.put("A:B", "AB-value");
+        contents.put("D:E", "DE-value");
+
+        underTest.reload().replaceWith(contents).publish();
+
+        assertEquals(contents, new HashMap<>(underTest));
+        assertEquals("A-new", underTest.get("A:X"));
+        assertNull(underTest.get("D"));
+    }
+
+    @Test
+    public void testReloadKeepsConcurrentModifications() {
+        ConcurrentComplexStringKeyMap<String>.Reload reload = underTest.reload().put("A", "A-value");
+        underTest.put("B", "B-value");
+
+        reload.publish();
+
+        assertEquals("A-value", underTest.get("A"));
+        assertEquals("B-value", underTest.get("B"));
+    }
+
+    @Test
+    public void testReplaceWithReplacesConcurrentModifications() {
+        underTest.put("A", "A-value");
+        underTest.put("B", "B-value");
+        Map<String, String> contents = new HashMap<>();
+        contents.put("A", "A-value");
+        contents.put("C", "C-value");
+        ConcurrentComplexStringKeyMap<String>.Reload reload = underTest.reload().replaceWith(contents);
+        reload.put("D", "D-value");
+
+        underTest.put("A", "A-concurrent");
+        underTest.put("E", "E-concurrent");
+        reload.publish();
+
+        contents.put("D", "D-value");
+        assertEquals(contents, new HashMap<>(underTest));
+    }
+
+    @Test
+    public void testReloadOfWideLevelKeepsConcurrentModifications() {
+        underTest.put("root:removed", "removed-value");
+        ConcurrentComplexStringKeyMap<String>.Reload reload = underTest.reload();
+        for (int i = 0; i < 10000; i++) {
+            reload.put("root:" + i, "value-" + i);
+        }
+        reload.remove("root:removed").remove("missing:key");
+
+        underTest.put("other:key", "other-value");
+        reload.publish();
+
+        assertEquals(1 + 10000 + 2, underTest.size());
+        assertFalse(underTest.containsKey("root:removed"));
+        assertEquals("value-7", underTest.get("root:7:x"));
+        assertEquals("other-value", underTest.get("other:key"));
+        assertFalse(underTest.containsKey("missing"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReloadCanBePublishedOnce() {
+        ConcurrentComplexStringKeyMap<String>.Reload reload = underTest.reload();
+        reload.publish();
+
+        reload.publish();
+    }
+
+    @Test
+    public void testReadersSeeCompleteGenerations() throws Exception {
+        final Map<String, String> contents = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            contents.put("key:" + i, "0");
+        }
+        contents.put("key", "0");
+        underTest.putAll(contents);
+        Future<Boolean> reader = executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                for (int i = 0; i < 2000; i++) {
+                    Map<String, String> snapshot = underTest.snapshot();
+                    if (snapshot.size() != contents.size() || new HashSet<>(snapshot.values()).size() != 1) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+
+        for (int generation = 1; generation < 200; generation++) {
+            for (String key : contents.keySet()) {
+                contents.put(key, String.valueOf(generation));
+            }
+            underTest.reload().replaceWith(contents).publish();
+        }
+
+        assertTrue(reader.get());
+    }
+}
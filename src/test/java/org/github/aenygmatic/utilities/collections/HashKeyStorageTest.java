@@ -0,0 +1,127 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link HashKeyStorage}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class HashKeyStorageTest {
+
+    private HashKeyStorage<String> underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new HashKeyStorage<>(":");
+    }
+
+    @Test
+    public void testResolveFallsBackToDeepestFragmentWithElement() {
+        underTest.put("A", "A-value");
+        underTest.put("A:B:C", "ABC-value");
+
+        assertEquals("ABC-value", underTest.resolve("A:B:C:D"));
+        assertEquals("A-value", underTest.resolve("A:B"));
+        assertEquals("A-value", underTest.resolve("A:X:C"));
+        assertNull(underTest.resolve("B:A"));
+    }
+
+    @Test
+    public void testPutPathOverridesOnlyTheLeaf() {
+        underTest.putPath("A", "A-value");
+        underTest.putPath("A:B", "AB-value");
+
+        String previous = underTest.putPath("A:B", "AB-new");
+
+        assertEquals("AB-value", previous);
+        assertEquals("A-value", underTest.get("A"));
+        assertEquals("AB-new", underTest.get("A:B"));
+        assertEquals(2, underTest.size());
+    }
+
+    @Test
+    public void testDelimiterIsMatchedLiterally() {
+        underTest = new HashKeyStorage<>(".");
+        underTest.putPath("a.b", "ab-value");
+
+        assertEquals("ab-value", underTest.get("a"));
+        assertEquals("ab-value", underTest.resolve("a.b.c"));
+        assertNull(underTest.resolve("axb"));
+    }
+
+    @Test
+    public void testMultiCharacterDelimiter() {
+        underTest = new HashKeyStorage<>("::");
+        underTest.putPath("A::B", "AB-value");
+
+        assertEquals("AB-value", underTest.resolve("A::B::C"));
+        assertEquals("AB-value", underTest.get("A"));
+        assertFalse(underTest.containsKey("A:"));
+    }
+
+    @Test
+    public void testPutAndRemoveManyKeys() {
+        for (int i = 0; i < 1000; i++) {
+            underTest.put("key:" + i, "value-" + i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            underTest.remove("key:" + i);
+        }
+        for (int i = 0; i < 1000; i += 4) {
+            underTest.put("key:" + i, "again-" + i);
+        }
+
+        assertEquals(750, underTest.size());
+        for (int i = 0; i < 1000; i++) {
+            String expected = i % 4 == 0 ? "again-" + i : i % 2 == 0 ? null : "value-" + i;
+            assertEquals(expected, underTest.get("key:" + i));
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            underTest.put("A:" + i, "value-" + i);
+            if (i % 10 != 1) {
+                expected.put("A:" + i, "value-" + i);
+            }
+        }
+
+        Iterator<Map.Entry<String, String>> iterator = underTest.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().endsWith("1")) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(expected, new HashMap<>(underTest));
+        assertTrue(underTest.equals(expected));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ImmutableComplexStringKeyMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ImmutableComplexStringKeyMapTest {
+
+    private ImmutableComplexStringKeyMap<String> underTest;
+
+    @Before
+    public void setUp() {
+        underTest = ImmutableComplexStringKeyMap.<String>builder()
+                .put("A", "A-value")
+                .put("A:B:C", "ABC-value")
+                .put("B:B", "BB-value")
+                .build();
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        assertEquals("ABC-value", underTest.get("A:B:C:D"));
+        assertEquals("ABC-value", underTest.get("A:B"));
+        assertEquals("A-value", underTest.get("A:X:C"));
+        assertEquals("BB-value", underTest.get("B"));
+        assertNull(underTest.get("C:A"));
+    }
+
+    @Test
+    public void testContainsOnlyThePutKeysAndTheirFragments() {
+        assertTrue(underTest.containsKey("A:B"));
+        assertFalse(underTest.containsKey("A:B:C:D"));
+        assertFalse(underTest.containsKey(new Object()));
+        assertEquals(5, underTest.size());
+    }
+
+    @Test
+    public void testFreezeKeepsTheEntries() {
+        ComplexStringKeyMap<String> source = new ComplexStringKeyMap<>("/");
+        for (int i = 0; i < 100; i++) {
+            source.put("root/" + i + "/leaf", "value-" + i);
+        }
+
+        ImmutableComplexStringKeyMap<String> frozen = source.freeze();
+
+        assertEquals(new HashMap<>(source), new HashMap<>(frozen));
+        assertEquals("value-42", frozen.get("root/42/other"));
+        assertEquals("/", frozen.getKeyDelimiter());
+    }
+
+    @Test
+    public void testFallbackSkipsMissingFragments() {
+        Map<String, String> entries = new HashMap<>();
+        entries.put("A", "A-value");
+        entries.put("A:B:C", null);
+        underTest = new ImmutableComplexStringKeyMap<>(entries, ":");
+
+        assertEquals("A-value", underTest.get("A:B:C:D"));
+        assertEquals("A-value", underTest.get("A:B"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPutIsNotSupported() {
+        underTest.put("A", "other");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testClearIsNotSupported() {
+        underTest.clear();
+    }
+
+    @Test
+    public void testSegments() {
+        assertEquals("ABC-value", underTest.getBySegments("A", "B", "C", 1));
+        assertEquals("A-value", underTest.getBySegments("A", 'X'));
+        assertNull(underTest.getBySegments("C"));
+    }
+}
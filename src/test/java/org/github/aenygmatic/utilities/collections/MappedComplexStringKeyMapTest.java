@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link MappedComplexStringKeyMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MappedComplexStringKeyMapTest {
+
+    private File file;
+    private ComplexStringKeyMap<String> source;
+    private MappedComplexStringKeyMap<String> underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("complex-key-map", ".bin");
+        source = new ComplexStringKeyMap<>();
+        source.put("A", "A-value");
+        source.put("A:B:C", "ABC-value");
+        source.put("B:B", "BB-\u00e1rv\u00edzt\u0171r\u0151");
+        MappedComplexStringKeyMap.write(source, ":", ValueCodec.UTF8, file);
+        underTest = MappedComplexStringKeyMap.open(file, ValueCodec.UTF8);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        assertEquals("ABC-value", underTest.get("A:B:C:D"));
+        assertEquals("A-value", underTest.get("A:X"));
+        assertEquals("BB-\u00e1rv\u00edzt\u0171r\u0151", underTest.get("B"));
+        assertNull(underTest.get("C:A"));
+        assertFalse(underTest.containsKey("A:X"));
+        assertTrue(underTest.containsKey("A:B"));
+    }
+
+    @Test
+    public void testContainsTheSameEntries() {
+        assertEquals(new HashMap<>(source), new HashMap<>(underTest));
+        assertEquals(":", underTest.getKeyDelimiter());
+    }
+
+    @Test
+    public void testNullElementFallsBackToParent() throws Exception {
+        HashMap<String, String> entries = new HashMap<>();
+        entries.put("x", "x-value");
+        entries.put("x/y", null);
+        MappedComplexStringKeyMap.write(entries, "/", ValueCodec.UTF8, file);
+
+        underTest = MappedComplexStringKeyMap.open(file, ValueCodec.UTF8);
+
+        assertEquals("x-value", underTest.get("x/y/z"));
+        assertTrue(underTest.containsKey("x/y"));
+        assertEquals(entries, new HashMap<>(underTest));
+    }
+
+    @Test
+    public void testManyKeys() throws Exception {
+        source = new ComplexStringKeyMap<>();
+        for (int i = 0; i < 5000; i++) {
+            source.put("root:" + (i % 50) + ":" + i, "value-" + i);
+        }
+        MappedComplexStringKeyMap.write(source, ":", ValueCodec.UTF8, file);
+
+        underTest = MappedComplexStringKeyMap.open(file, ValueCodec.UTF8);
+
+        assertEquals(source.size(), underTest.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals("value-" + i, underTest.get("root:" + (i % 50) + ":" + i + ":leaf"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenRejectsOtherFiles() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+
+        MappedComplexStringKeyMap.open(file, ValueCodec.UTF8);
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenRejectsTruncatedFiles() throws Exception {
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(truncated.length() - 1);
+        }
+
+        MappedComplexStringKeyMap.open(file, ValueCodec.UTF8);
+    }
+
+    @Test
+    public void testSegments() {
+        assertEquals("ABC-value", underTest.getBySegments("A", "B", "C", 1));
+        assertEquals("A-value", underTest.getBySegments("A", 'X'));
+        assertNull(underTest.getBySegments("C"));
+    }
+}
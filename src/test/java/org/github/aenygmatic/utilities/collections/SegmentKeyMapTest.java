@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SegmentKeyMap}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class SegmentKeyMapTest {
+
+    private SegmentKeyMap<String> underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new SegmentKeyMap<>();
+    }
+
+    @Test
+    public void testFallbackMapping() {
+        underTest.putBySegments(new Object[]{42L, TimeUnit.SECONDS}, "seconds");
+        underTest.putBySegments(new Object[]{42L}, "tenant");
+
+        assertEquals("seconds", underTest.getBySegments(42L, TimeUnit.SECONDS, "product"));
+        assertEquals("tenant", underTest.getBySegments(42L, TimeUnit.DAYS));
+        assertEquals("tenant", underTest.get(Arrays.asList(42L)));
+        assertNull(underTest.getBySegments(43L));
+        assertNull(underTest.get("42"));
+    }
+
+    @Test
+    public void testPutOverridesOnlyTheLeaf() {
+        underTest.put(Arrays.asList("A", "B", "C"), "ABC-value");
+
+        String previous = underTest.put(Arrays.asList("A", "B"), "AB-value");
+
+        assertEquals("ABC-value", previous);
+        assertEquals("ABC-value", underTest.getBySegments("A"));
+        assertEquals("AB-value", underTest.getBySegments("A", "B", "D"));
+        assertEquals(3, underTest.size());
+    }
+
+    @Test
+    public void testRemovePrunesEmptySegments() {
+        underTest.put(Arrays.asList(1, 2, 3), "value");
+        underTest.remove(Arrays.asList(1, 2, 3));
+        underTest.remove(Arrays.asList(1, 2));
+        underTest.remove(Arrays.asList(1));
+
+        assertTrue(underTest.isEmpty());
+        assertFalse(underTest.containsKey(Arrays.asList(1)));
+        assertNull(underTest.getBySegments(1, 2, 3));
+    }
+
+    @Test
+    public void testIteration() {
+        underTest.put(Arrays.asList(1, 2), "value");
+        Map<List<?>, String> expected = new HashMap<>();
+        expected.put(Arrays.asList(1), "value");
+        expected.put(Arrays.asList(1, 2), "value");
+
+        assertEquals(expected, new HashMap<>(underTest));
+
+        Iterator<Map.Entry<List<?>, String>> iterator = underTest.entrySet().iterator();
+        iterator.next().setValue("other");
+        iterator.remove();
+        assertEquals(1, underTest.size());
+    }
+}
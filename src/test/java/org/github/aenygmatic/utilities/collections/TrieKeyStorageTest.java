@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link TrieKeyStorage}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class TrieKeyStorageTest {
+
+    private TrieKeyStorage<String> underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new TrieKeyStorage<>(":");
+    }
+
+    @Test
+    public void testResolveFallsBackToDeepestFragmentWithElement() {
+        underTest.putPath("A:B", "AB-value");
+        underTest.putPath("A:B:C:D", "ABCD-value");
+
+        assertEquals("ABCD-value", underTest.resolve("A:B:C"));
+        assertEquals("ABCD-value", underTest.resolve("A:B:C:D:E"));
+        assertEquals("AB-value", underTest.resolve("A:B:X:D"));
+        assertNull(underTest.resolve("B"));
+    }
+
+    @Test
+    public void testPutPathOverridesOnlyTheLeaf() {
+        underTest.putPath("A", "A-value");
+        underTest.putPath("A:B", "AB-value");
+
+        String previous = underTest.putPath("A:B", "AB-new");
+
+        assertEquals("AB-value", previous);
+        assertEquals("A-value", underTest.get("A"));
+        assertEquals("AB-new", underTest.get("A:B"));
+        assertEquals(2, underTest.size());
+    }
+
+    @Test
+    public void testPutStoresOnlyTheGivenKey() {
+        underTest.put("A:B", "AB-value");
+
+        assertFalse(underTest.containsKey("A"));
+        assertTrue(underTest.containsKey("A:B"));
+        assertEquals(1, underTest.size());
+        assertNull(underTest.resolve("A"));
+        assertEquals("AB-value", underTest.resolve("A:B:C"));
+    }
+
+    @Test
+    public void testRemovePrunesEmptyFragments() {
+        underTest.put("A:B:C", "ABC-value");
+
+        assertEquals("ABC-value", underTest.remove("A:B:C"));
+
+        assertTrue(underTest.isEmpty());
+        assertNull(underTest.resolve("A:B:C"));
+        assertNull(underTest.remove("A:B"));
+    }
+
+    @Test
+    public void testMultiCharacterDelimiter() {
+        underTest = new TrieKeyStorage<>("::");
+        underTest.putPath("A::B", "AB-value");
+
+        assertEquals("AB-value", underTest.resolve("A::B::C"));
+        assertEquals("AB-value", underTest.get("A"));
+    }
+
+    @Test
+    public void testIterationReturnsEveryKey() {
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            expected.put("A:" + i, "value-" + i);
+            expected.put("A:" + i + ":B", "value-B-" + i);
+        }
+        underTest.putAll(expected);
+
+        assertEquals(expected, new HashMap<>(underTest));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        for (int i = 0; i < 20; i++) {
+            underTest.put("A:" + i, "value-" + i);
+        }
+
+        Iterator<Map.Entry<String, String>> iterator = underTest.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getKey().endsWith("1")) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(18, underTest.size());
+        assertNull(underTest.get("A:11"));
+        assertEquals("value-12", underTest.get("A:12"));
+    }
+
+    @Test
+    public void testRemovingManyChildrenKeepsTheOthersReachable() {
+        for (int i = 0; i < 100; i++) {
+            underTest.put("A:" + i, "value-" + i);
+        }
+        for (int i = 0; i < 100; i += 3) {
+            underTest.remove("A:" + i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 3 == 0 ? null : "value-" + i, underTest.get("A:" + i));
+        }
+    }
+}
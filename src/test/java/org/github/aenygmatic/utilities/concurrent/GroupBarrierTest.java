@@ -0,0 +1,426 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link GroupBarrier}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class GroupBarrierTest {
+
+    private ExecutorService executor;
+    private GroupBarrier<String> underTest;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        underTest = new GroupBarrier<>(100, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameGroupIsExclusive() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        boolean actual = inOtherThread(awaitGroup("A"));
+
+        assertFalse(actual);
+        underTest.unlockGroup("A");
+    }
+
+    @Test
+    public void testDifferentGroupsDoNotBlockEachOther() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        boolean actual = inOtherThread(awaitGroup("B"));
+
+        assertTrue(actual);
+        underTest.unlockGroup("A");
+    }
+
+    @Test
+    public void testGroupIsReleasedForQueuedThread() throws Exception {
+        underTest = new GroupBarrier<>(5, TimeUnit.SECONDS);
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        Future<Boolean> queued = executor.submit(awaitGroup("A"));
+        underTest.unlockGroup("A");
+
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGroupIsCleanedUpWhenLastMemberLeaves() {
+        underTest.tryAndAwaitGroup("A");
+        underTest.tryAndAwaitGroup("B");
+        underTest.unlockGroup("A");
+        underTest.unlockGroup("B");
+
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testAsyncPermitIsGrantedForFreeGroup() throws Exception {
+        GroupPermit<String> permit = underTest.acquireGroup("A");
+
+        assertTrue(permit.isGranted());
+        assertTrue(permit.get());
+        permit.release();
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testAsyncPermitIsQueuedUntilRelease() throws Exception {
+        GroupPermit<String> first = underTest.acquireGroup("A");
+        GroupPermit<String> second = underTest.acquireGroup("A");
+        final CountDownLatch notified = new CountDownLatch(1);
+        second.addListener(countDown(notified), executor);
+
+        assertFalse(second.isDone());
+        first.release();
+
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        assertTrue(second.isGranted());
+        second.release();
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopTheOtherPermits() throws Exception {
+        final AtomicReference<Throwable> reported = new AtomicReference<>();
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        current.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(Thread thread, Throwable e) {
+                reported.set(e);
+            }
+        });
+        try {
+            GroupPermit<String> first = underTest.acquireGroup("A");
+            GroupPermit<String> failing = underTest.acquireGroup("A", LockMode.SHARED);
+            GroupPermit<String> other = underTest.acquireGroup("A", LockMode.SHARED);
+            final CountDownLatch notified = new CountDownLatch(1);
+            failing.addListener(countDown(notified), new Executor() {
+
+                @Override
+                public void execute(Runnable command) {
+                    throw new RejectedExecutionException("expected by the test");
+                }
+            });
+            other.addListener(countDown(notified), executor);
+
+            first.release();
+
+            assertTrue(notified.await(5, TimeUnit.SECONDS));
+            assertTrue(failing.isGranted());
+            assertTrue(other.isGranted());
+            assertTrue(reported.get() instanceof RejectedExecutionException);
+            failing.release();
+            other.release();
+        } finally {
+            current.setUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void testCancelledPermitLeavesTheQueue() throws Exception {
+        GroupPermit<String> first = underTest.acquireGroup("A");
+        GroupPermit<String> cancelled = underTest.acquireGroup("A");
+        GroupPermit<String> third = underTest.acquireGroup("A");
+
+        assertTrue(cancelled.cancel(false));
+        first.release();
+
+        assertTrue(cancelled.isCancelled());
+        assertTrue(third.isGranted());
+        third.release();
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testThreadAndPermitShareTheGroup() throws Exception {
+        GroupPermit<String> permit = underTest.acquireGroup("A");
+
+        boolean actual = inOtherThread(awaitGroup("A"));
+
+        assertFalse(actual);
+        permit.release();
+    }
+
+    @Test
+    public void testStatisticsReportContention() throws Exception {
+        underTest.setMetricsEnabled(true);
+        GroupPermit<String> holder = underTest.acquireGroup("A");
+        GroupPermit<String> waiter = underTest.acquireGroup("A");
+        inOtherThread(awaitGroup("A"));
+        underTest.acquireGroup("B").release();
+
+        GroupBarrierStatistics<String> actual = underTest.getStatistics(1);
+
+        assertEquals(2, actual.getAcquireLatency().getCount());
+        assertEquals(1, actual.getHoldTime().getCount());
+        assertEquals(1, actual.getTimeouts());
+        assertEquals(1, actual.getQueueDepth());
+        assertEquals(1, actual.getHottestGroups().size());
+        assertEquals("A", actual.getHottestGroups().get(0).getGroupId());
+        holder.release();
+        waiter.release();
+    }
+
+    @Test
+    public void testNewestWaiterIsRejectedWhenGroupIsFull() throws Exception {
+        underTest.setMaxWaitersPerGroup(1);
+        GroupPermit<String> holder = underTest.acquireGroup("A");
+        GroupPermit<String> waiter = underTest.acquireGroup("A");
+
+        GroupPermit<String> rejected = underTest.acquireGroup("A");
+
+        assertTrue(rejected.isRejected());
+        assertFalse(rejected.get());
+        assertFalse(waiter.isDone());
+        holder.release();
+        assertTrue(waiter.isGranted());
+        waiter.release();
+    }
+
+    @Test
+    public void testOldestWaiterIsRejectedWhenGroupIsFull() throws Exception {
+        underTest.setMaxWaitersPerGroup(1);
+        underTest.setOverloadPolicy(OverloadPolicy.REJECT_OLDEST);
+        GroupPermit<String> holder = underTest.acquireGroup("A");
+        GroupPermit<String> oldest = underTest.acquireGroup("A");
+
+        GroupPermit<String> newest = underTest.acquireGroup("A");
+
+        assertTrue(oldest.isRejected());
+        holder.release();
+        assertTrue(newest.isGranted());
+        newest.release();
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testWaiterIsRejectedWhenBarrierIsFull() throws Exception {
+        underTest.setMaxWaiters(1);
+        GroupPermit<String> holderOfA = underTest.acquireGroup("A");
+        GroupPermit<String> holderOfB = underTest.acquireGroup("B");
+        GroupPermit<String> waiter = underTest.acquireGroup("A");
+
+        boolean actual = underTest.tryAndAwaitGroup("B");
+
+        assertFalse(actual);
+        waiter.cancel(false);
+        assertTrue(underTest.acquireGroup("B").cancel(false));
+        holderOfA.release();
+        holderOfB.release();
+    }
+
+    @Test
+    public void testSharedMembersHoldTheGroupTogether() throws Exception {
+        GroupPermit<String> reader = underTest.acquireGroup("A", LockMode.SHARED);
+
+        boolean actual = inOtherThread(awaitGroup("A", LockMode.SHARED));
+
+        assertTrue(actual);
+        reader.release();
+    }
+
+    @Test
+    public void testExclusiveMemberWaitsForSharedMembers() throws Exception {
+        GroupPermit<String> reader = underTest.acquireGroup("A", LockMode.SHARED);
+        GroupPermit<String> writer = underTest.acquireGroup("A", LockMode.EXCLUSIVE);
+
+        assertFalse(writer.isDone());
+        reader.release();
+        assertTrue(writer.isGranted());
+        writer.release();
+    }
+
+    @Test
+    public void testSharedMembersQueueBehindExclusiveMember() throws Exception {
+        GroupPermit<String> reader = underTest.acquireGroup("A", LockMode.SHARED);
+        GroupPermit<String> writer = underTest.acquireGroup("A", LockMode.EXCLUSIVE);
+        GroupPermit<String> firstLateReader = underTest.acquireGroup("A", LockMode.SHARED);
+        GroupPermit<String> secondLateReader = underTest.acquireGroup("A", LockMode.SHARED);
+
+        assertFalse(firstLateReader.isDone());
+        reader.release();
+        writer.release();
+
+        assertTrue(firstLateReader.isGranted());
+        assertTrue(secondLateReader.isGranted());
+        firstLateReader.release();
+        secondLateReader.release();
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testExclusiveHolderReentersInSharedMode() {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        assertTrue(underTest.tryAndAwaitGroup("A", LockMode.SHARED));
+        underTest.unlockGroup("A");
+        underTest.unlockGroup("A");
+
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testGroupSetIsLockedAtomically() throws Exception {
+        GroupPermit<String> holder = underTest.acquireGroup("B");
+
+        boolean actual = underTest.tryAndAwaitGroups(Arrays.asList("A", "B"));
+
+        assertFalse(actual);
+        assertTrue(inOtherThread(awaitGroup("A")));
+        holder.release();
+        assertTrue(underTest.tryAndAwaitGroups(Arrays.asList("A", "B")));
+        assertFalse(inOtherThread(awaitGroup("A")));
+        underTest.unlockGroups(Arrays.asList("A", "B"));
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testGroupSetsInOppositeOrderDoNotDeadlock() throws Exception {
+        underTest = new GroupBarrier<>(5, TimeUnit.SECONDS);
+        Future<Boolean> forward = executor.submit(lockGroupsRepeatedly(Arrays.asList("A", "B")));
+        Future<Boolean> backward = executor.submit(lockGroupsRepeatedly(Arrays.asList("B", "A")));
+
+        assertTrue(forward.get(10, TimeUnit.SECONDS));
+        assertTrue(backward.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSweepExpiresHolderExceedingItsLease() throws Exception {
+        underTest.setMaxHoldTime(1, TimeUnit.MILLISECONDS);
+        GroupPermit<String> holder = underTest.acquireGroup("A");
+        GroupPermit<String> waiter = underTest.acquireGroup("A");
+        Thread.sleep(10);
+
+        int actual = underTest.sweep();
+
+        assertEquals(1, actual);
+        assertTrue(holder.isExpired());
+        assertTrue(holder.get());
+        assertTrue(waiter.isGranted());
+    }
+
+    @Test
+    public void testSweepExpiresAsyncWaiterExceedingTheTimeout() throws Exception {
+        GroupPermit<String> holder = underTest.acquireGroup("A");
+        GroupPermit<String> waiter = underTest.acquireGroup("A");
+        Thread.sleep(150);
+
+        int actual = underTest.sweep();
+
+        assertEquals(1, actual);
+        assertTrue(waiter.isExpired());
+        assertFalse(waiter.get());
+        assertTrue(holder.isGranted());
+        holder.release();
+        assertEquals(0, underTest.activeGroups());
+    }
+
+    @Test
+    public void testSweeperReleasesAbandonedGroup() throws Exception {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            underTest = new GroupBarrier<>(5, TimeUnit.SECONDS);
+            underTest.setMaxHoldTime(10, TimeUnit.MILLISECONDS);
+            underTest.startSweeper(scheduler, 10, TimeUnit.MILLISECONDS);
+            underTest.acquireGroup("A");
+
+            GroupPermit<String> waiter = underTest.acquireGroup("A");
+
+            assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Callable<Boolean> lockGroupsRepeatedly(final List<String> groupIds) {
+        return new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                for (int i = 0; i < 1000; i++) {
+                    if (!underTest.tryAndAwaitGroups(groupIds)) {
+                        return false;
+                    }
+                    underTest.unlockGroups(groupIds);
+                }
+                return true;
+            }
+        };
+    }
+
+    private Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private Callable<Boolean> awaitGroup(String groupId) {
+        return awaitGroup(groupId, LockMode.EXCLUSIVE);
+    }
+
+    private Callable<Boolean> awaitGroup(final String groupId, final LockMode mode) {
+        return new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                boolean acquired = underTest.tryAndAwaitGroup(groupId, mode);
+                underTest.unlockGroup(groupId);
+                return acquired;
+            }
+        };
+    }
+
+    private boolean inOtherThread(Callable<Boolean> task) throws Exception {
+        return executor.submit(task).get(5, TimeUnit.SECONDS);
+    }
+}
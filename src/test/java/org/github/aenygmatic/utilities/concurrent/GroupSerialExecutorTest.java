@@ -0,0 +1,204 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link GroupSerialExecutor}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class GroupSerialExecutorTest {
+
+    private static final int TASKS = 200;
+
+    private ExecutorService executor;
+    private GroupSerialExecutor<String> underTest;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        underTest = new GroupSerialExecutor<>(executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTasksOfTheSameGroupRunInOrderOneAtATime() throws Exception {
+        final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            final int index = i;
+            underTest.execute("A", new Runnable() {
+
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    executed.add(index);
+                    running.decrementAndGet();
+                    finished.countDown();
+                }
+            });
+        }
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < TASKS; i++) {
+            assertEquals(Integer.valueOf(i), executed.get(i));
+        }
+    }
+
+    @Test
+    public void testTasksOfDifferentGroupsRunInParallel() throws Exception {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final CountDownLatch finished = new CountDownLatch(2);
+
+        underTest.execute("A", awaitEachOther(bothStarted, finished));
+        underTest.execute("B", awaitEachOther(bothStarted, finished));
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTheGroup() throws Exception {
+        final CountDownLatch finished = new CountDownLatch(1);
+        underTest.execute("A", new Runnable() {
+
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by the test");
+            }
+        });
+        underTest.execute("A", new Runnable() {
+
+            @Override
+            public void run() {
+                finished.countDown();
+            }
+        });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskThrowingErrorDoesNotStopTheGroup() throws Exception {
+        underTest.execute("A", new Runnable() {
+
+            @Override
+            public void run() {
+                throw new AssertionError("expected by the test");
+            }
+        });
+        CountDownLatch sameTurn = new CountDownLatch(1);
+        underTest.execute("A", countDown(sameTurn));
+        assertTrue(sameTurn.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch laterTurn = new CountDownLatch(1);
+        underTest.execute("A", countDown(laterTurn));
+        assertTrue(laterTurn.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGroupRecoversWhenTheExecutorRejectsATurn() throws Exception {
+        final AtomicBoolean rejected = new AtomicBoolean();
+        underTest = new GroupSerialExecutor<>(new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                if (rejected.compareAndSet(false, true)) {
+                    throw new RejectedExecutionException("expected by the test");
+                }
+                executor.execute(command);
+            }
+        });
+        final AtomicReference<Throwable> reported = new AtomicReference<>();
+        Thread current = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+        current.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+
+            @Override
+            public void uncaughtException(Thread thread, Throwable e) {
+                reported.set(e);
+            }
+        });
+        try {
+            CountDownLatch dropped = new CountDownLatch(1);
+            underTest.execute("A", countDown(dropped));
+            assertTrue(reported.get() instanceof RejectedExecutionException);
+            assertEquals(1, dropped.getCount());
+        } finally {
+            current.setUncaughtExceptionHandler(handler);
+        }
+
+        CountDownLatch later = new CountDownLatch(1);
+        underTest.execute("A", countDown(later));
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+    }
+
+    private Runnable countDown(final CountDownLatch latch) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+    }
+
+    private Runnable awaitEachOther(final CountDownLatch bothStarted, final CountDownLatch finished) {
+        return new Runnable() {
+
+            @Override
+            public void run() {
+                bothStarted.countDown();
+                try {
+                    if (bothStarted.await(5, TimeUnit.SECONDS)) {
+                        finished.countDown();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+}
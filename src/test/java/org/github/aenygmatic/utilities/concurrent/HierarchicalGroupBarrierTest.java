@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link HierarchicalGroupBarrier}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class HierarchicalGroupBarrierTest {
+
+    private ExecutorService executor;
+    private HierarchicalGroupBarrier underTest;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        underTest = new HierarchicalGroupBarrier(100, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSiblingsRunInParallel() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("tenant:A:order"));
+
+        assertTrue(inOtherThread(awaitGroup("tenant:B:order", LockMode.EXCLUSIVE)));
+        assertTrue(inOtherThread(awaitGroup("tenant:A:other", LockMode.EXCLUSIVE)));
+        underTest.unlockGroup("tenant:A:order");
+    }
+
+    @Test
+    public void testLockedAncestorExcludesDescendants() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("tenant"));
+
+        assertFalse(inOtherThread(awaitGroup("tenant:A:order", LockMode.EXCLUSIVE)));
+        assertTrue(inOtherThread(awaitGroup("other:A", LockMode.EXCLUSIVE)));
+        underTest.unlockGroup("tenant");
+        assertTrue(inOtherThread(awaitGroup("tenant:A:order", LockMode.EXCLUSIVE)));
+    }
+
+    @Test
+    public void testLockedDescendantExcludesAncestor() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("tenant:A"));
+
+        assertFalse(inOtherThread(awaitGroup("tenant", LockMode.EXCLUSIVE)));
+        assertFalse(inOtherThread(awaitGroup("tenant", LockMode.SHARED)));
+        underTest.unlockGroup("tenant:A");
+        assertTrue(inOtherThread(awaitGroup("tenant", LockMode.EXCLUSIVE)));
+    }
+
+    @Test
+    public void testSharedAncestorAllowsSharedDescendants() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("tenant", LockMode.SHARED));
+
+        assertTrue(inOtherThread(awaitGroup("tenant:A", LockMode.SHARED)));
+        assertFalse(inOtherThread(awaitGroup("tenant:A", LockMode.EXCLUSIVE)));
+        underTest.unlockGroup("tenant");
+    }
+
+    private Callable<Boolean> awaitGroup(final String groupId, final LockMode mode) {
+        return new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                boolean acquired = underTest.tryAndAwaitGroup(groupId, mode);
+                if (acquired) {
+                    underTest.unlockGroup(groupId);
+                }
+                return acquired;
+            }
+        };
+    }
+
+    private boolean inOtherThread(Callable<Boolean> task) throws Exception {
+        return executor.submit(task).get(5, TimeUnit.SECONDS);
+    }
+}
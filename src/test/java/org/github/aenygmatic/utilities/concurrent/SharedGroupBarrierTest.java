@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.github.aenygmatic.utilities.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link SharedGroupBarrier}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class SharedGroupBarrierTest {
+
+    private File lockTable;
+    private ExecutorService executor;
+    private SharedGroupBarrier<String> underTest;
+    private SharedGroupBarrier<String> other;
+
+    @Before
+    public void setUp() throws Exception {
+        lockTable = File.createTempFile("group-barrier", ".lock");
+        executor = Executors.newCachedThreadPool();
+        underTest = new SharedGroupBarrier<>(lockTable, 1024, 100, TimeUnit.MILLISECONDS);
+        other = new SharedGroupBarrier<>(lockTable, 16, 100, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        underTest.close();
+        other.close();
+        lockTable.delete();
+    }
+
+    @Test
+    public void testSameGroupIsExclusiveAcrossLockTableUsers() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        assertFalse(inOtherThread(awaitGroup(other, "A")));
+        underTest.unlockGroup("A");
+        assertTrue(inOtherThread(awaitGroup(other, "A")));
+    }
+
+    @Test
+    public void testExistingTableKeepsItsSize() throws Exception {
+        assertTrue(other.tryAndAwaitGroup("A"));
+
+        assertEquals(0, underTest.getOwnerProcess("B"));
+        assertTrue(inOtherThread(awaitGroup(underTest, "B")));
+        other.unlockGroup("A");
+    }
+
+    @Test
+    public void testOwnerIsRecordedInTheTable() {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+
+        assertTrue(other.getOwnerProcess("A") != 0);
+        assertTrue(other.getAcquisitionTime("A") > 0);
+        underTest.unlockGroup("A");
+        assertEquals(0, other.getOwnerProcess("A"));
+    }
+
+    @Test
+    public void testLockIsReentrant() throws Exception {
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+        assertTrue(underTest.tryAndAwaitGroup("A"));
+        underTest.unlockGroup("A");
+
+        assertFalse(inOtherThread(awaitGroup(other, "A")));
+        underTest.unlockGroup("A");
+        assertTrue(inOtherThread(awaitGroup(other, "A")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTableWithoutSlotsIsRejected() throws Exception {
+        new SharedGroupBarrier<String>(lockTable, 0);
+    }
+
+    private Callable<Boolean> awaitGroup(final SharedGroupBarrier<String> barrier, final String groupId) {
+        return new Callable<Boolean>() {
+
+            @Override
+            public Boolean call() {
+                boolean acquired = barrier.tryAndAwaitGroup(groupId);
+                barrier.unlockGroup(groupId);
+                return acquired;
+            }
+        };
+    }
+
+    private boolean inOtherThread(Callable<Boolean> task) throws Exception {
+        return executor.submit(task).get(5, TimeUnit.SECONDS);
+    }
+}